@@ -0,0 +1,130 @@
+package sudokusolver;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves many boards at once on a fixed number of threads, and records how long each took.
+ * Boards are solved in place, so results keep the order of the input. Statistics cover every
+ * board solved since the BatchSolver was created, so a large input can be solved a block at a time.
+ * If asked to, it also collects the SolveStats of every solve into one aggregate, and puts a
+ * SolutionCache in front of the engine.
+ */
+public class BatchSolver implements AutoCloseable {
+    private final int threads;
+    private final ExecutorService pool;
+    private long[] latencies;        // Nanoseconds spent on each board solved so far
+    private int count;               // Number of boards solved so far
+    private long elapsed;            // Nanoseconds spent in solveAll so far
+    private final SolveStats stats;  // Aggregate of all solves so far, null if not collecting stats
+    private final Engine engine;
+    private final SolutionCache cache;   // Null if puzzles go straight to the engine
+
+    public BatchSolver( int threads ) {
+        this( threads, Engine.RULES, false );
+    }
+
+    public BatchSolver( int threads, Engine engine, boolean collectStats ) {
+        this( threads, engine, collectStats, null );
+    }
+
+    public BatchSolver( int threads, Engine engine, boolean collectStats, SolutionCache cache ) {
+        if( threads < 1 )
+            throw new IllegalArgumentException( "threads must be positive" );
+        this.threads = threads;
+        this.engine = engine;
+        this.cache = cache;
+        pool = Executors.newFixedThreadPool( threads );
+        latencies = new long[1024];
+        stats = collectStats ? new SolveStats() : null;
+    }
+
+    /**
+     * Solves each of boards in place. Entry i of the returned array is true if boards[i] was
+     * solved, false if it was invalid.
+     */
+    public boolean[] solveAll( int[][][] boards ) throws InterruptedException {
+        boolean[] solved = new boolean[boards.length];
+        solveAll( boards, boards.length, solved );
+        return solved;
+    }
+
+    /**
+     * Solves boards[0],...,boards[size - 1] in place, setting solved[i] to true if boards[i]
+     * was solved and false if it was invalid.
+     */
+    public void solveAll( int[][][] boards, int size, boolean[] solved ) throws InterruptedException {
+        if( latencies.length < count + size )
+            latencies = Arrays.copyOf( latencies, Math.max( 2 * latencies.length, count + size ) );
+        long[] times = latencies;
+        int first = count;
+        AtomicInteger next = new AtomicInteger();    // Index of the next board to be taken by a worker
+
+        Runnable worker = () -> {
+            SolveStats workerStats = stats == null ? null : new SolveStats();
+            for( int i = next.getAndIncrement(); i < size; i = next.getAndIncrement() ) {
+                long start = System.nanoTime();
+                if( cache != null ) {
+                    solved[i] = cache.solve( boards[i], engine, workerStats );
+                } else {
+                    solved[i] = engine.solve( boards[i], workerStats );
+                }
+                times[first + i] = System.nanoTime() - start;
+            }
+            if( stats != null )
+                stats.add( workerStats );
+        };
+
+        long start = System.nanoTime();
+        Future<?>[] futures = new Future<?>[threads];
+        for( int t = 0; t < threads; t++ )
+            futures[t] = pool.submit( worker );
+        try {
+            for( Future<?> future : futures )
+                future.get();
+        } catch( ExecutionException ex ) {
+            throw new IllegalStateException( "Solver failed", ex.getCause() );
+        } finally {
+            for( Future<?> future : futures )
+                future.cancel( true );
+        }
+        elapsed += System.nanoTime() - start;
+        count += size;
+    }
+
+    // Aggregate stats of the boards solved so far, or null if stats are not being collected
+    public SolveStats getStats() {
+        return stats;
+    }
+
+    // Boards solved per second so far
+    public double puzzlesPerSecond() {
+        return elapsed == 0 ? 0 : count * 1e9 / elapsed;
+    }
+
+    // Latency in nanoseconds below which the fraction p (between 0 and 1) of the boards so far were solved
+    public long latencyPercentile( double p ) {
+        if( count == 0 )
+            return 0;
+        long[] sorted = Arrays.copyOf( latencies, count );
+        Arrays.sort( sorted );
+        int index = (int) Math.ceil( p * count ) - 1;
+        return sorted[Math.max( 0, Math.min( index, count - 1 ) )];
+    }
+
+    // Returns a one-line summary of the boards solved so far
+    public String report() {
+        return String.format( "%d puzzles in %.3f s, %.1f puzzles/s, latency p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us",
+                count, elapsed / 1e9, puzzlesPerSecond(), latencyPercentile(0.5) / 1e3,
+                latencyPercentile(0.9) / 1e3, latencyPercentile(0.99) / 1e3, latencyPercentile(1) / 1e3 );
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
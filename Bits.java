@@ -0,0 +1,128 @@
+package sudokusolver;
+
+/**
+ * Static helpers for sets of small non-negative integers stored as bitmasks.
+ * A set occupies w consecutive longs of an array starting at some offset, so
+ * element e lives in word off + (e >>> 6) at bit (e & 63). For sudokus with
+ * n2 <= 64 every set is a single word.
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    // Number of longs needed to hold a set of integers 0,...,size - 1
+    static int words( int size ) {
+        return (size + 63) >>> 6;
+    }
+
+    static boolean contains( long[] a, int off, int e ) {
+        return (a[off + (e >>> 6)] & (1L << e)) != 0;
+    }
+
+    // Adds e to the set. Returns false if e was already present.
+    static boolean add( long[] a, int off, int e ) {
+        int idx = off + (e >>> 6);
+        long old = a[idx];
+        a[idx] = old | (1L << e);
+        return a[idx] != old;
+    }
+
+    // Removes e from the set. Returns true if e was present.
+    static boolean remove( long[] a, int off, int e ) {
+        int idx = off + (e >>> 6);
+        long old = a[idx];
+        a[idx] = old & ~(1L << e);
+        return a[idx] != old;
+    }
+
+    static void clear( long[] a, int off, int w ) {
+        for( int t = 0; t < w; t++ )
+            a[off + t] = 0;
+    }
+
+    static int count( long[] a, int off, int w ) {
+        int c = 0;
+        for( int t = 0; t < w; t++ )
+            c += Long.bitCount( a[off + t] );
+        return c;
+    }
+
+    // Returns the smallest element of the set, or -1 if the set is empty
+    static int lowest( long[] a, int off, int w ) {
+        return next( a, off, w, 0 );
+    }
+
+    // Returns the smallest element of the set which is >= from, or -1 if no such
+    static int next( long[] a, int off, int w, int from ) {
+        int t = from >>> 6;
+        if( t >= w )
+            return -1;
+        long word = a[off + t] & (-1L << from);
+        while( true ) {
+            if( word != 0 )
+                return (t << 6) + Long.numberOfTrailingZeros( word );
+            if( ++t == w )
+                return -1;
+            word = a[off + t];
+        }
+    }
+
+    /**
+     * Returns true if the set has an element e with from <= e < to (from < to), testing each
+     * word against a mask of the range rather than element by element.
+     */
+    static boolean containsAny( long[] a, int off, int from, int to ) {
+        int t = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long word = a[off + t] & (-1L << from);
+        while( t < last ) {
+            if( word != 0 )
+                return true;
+            word = a[off + ++t];
+        }
+        return (word & (-1L >>> -to)) != 0;   // Keep the bits below to, all of them if to is a multiple of 64
+    }
+
+    // Returns true if sets a and b have an element in common
+    static boolean intersects( long[] a, int aOff, long[] b, int bOff, int w ) {
+        for( int t = 0; t < w; t++ )
+            if( (a[aOff + t] & b[bOff + t]) != 0 )
+                return true;
+        return false;
+    }
+
+    // Removes every element of set b from set a. Returns the number of elements removed.
+    static int removeAll( long[] a, int aOff, long[] b, int bOff, int w ) {
+        int removed = 0;
+        for( int t = 0; t < w; t++ ) {
+            long old = a[aOff + t];
+            a[aOff + t] = old & ~b[bOff + t];
+            removed += Long.bitCount( old & b[bOff + t] );
+        }
+        return removed;
+    }
+
+    // Sets dst to the union of sets a and b. Returns the number of elements of the union.
+    static int union( long[] a, int aOff, long[] b, int bOff, long[] dst, int dstOff, int w ) {
+        int c = 0;
+        for( int t = 0; t < w; t++ ) {
+            long word = a[aOff + t] | b[bOff + t];
+            dst[dstOff + t] = word;
+            c += Long.bitCount( word );
+        }
+        return c;
+    }
+
+    // Sets a to the elements 0,...,size - 1
+    static void fill( long[] a, int off, int w, int size ) {
+        for( int t = 0; t < w; t++ ) {
+            int bits = size - (t << 6);
+            a[off + t] = bits >= 64 ? -1L : bits <= 0 ? 0 : (1L << bits) - 1;
+        }
+    }
+
+    static void copy( long[] src, int srcOff, long[] dst, int dstOff, int w ) {
+        System.arraycopy( src, srcOff, dst, dstOff, w );
+    }
+}
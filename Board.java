@@ -0,0 +1,97 @@
+package sudokusolver;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A flat sudoku board: entry (i,j) is byte i*n2 + j of a ByteBuffer, holding the number, or 0
+ * for a blank. Numbers are read as unsigned bytes, so boards up to 225x225 fit. A Board can
+ * wrap storage owned by the caller (part of an array, or of a direct or mapped buffer) without
+ * copying it, so a Solver given a Board reads the puzzle from, and writes the solution to, that
+ * storage. As elsewhere, get and set use -1 for blanks.
+ */
+public final class Board {
+    static final int MAX_SIDE = 225;    // Largest n^2 with every number fitting in an unsigned byte
+
+    private final int n2;
+    private final ByteBuffer cells;     // Entry (i,j) at index offset + i*n2 + j
+    private final int offset;
+
+    // An empty n2 x n2 board with storage of its own
+    public Board( int n2 ) {
+        this( ByteBuffer.allocate( checkSide( n2 ) * n2 ), 0, n2 );
+    }
+
+    // The n2 x n2 board held in cells from offset on, without copying it
+    public Board( byte[] cells, int offset, int n2 ) {
+        this( ByteBuffer.wrap( cells ), offset, n2 );
+    }
+
+    /**
+     * The n2 x n2 board held in cells from index offset on, without copying it. The position and
+     * limit of cells are ignored and left alone.
+     */
+    public Board( ByteBuffer cells, int offset, int n2 ) {
+        checkSide( n2 );
+        if( offset < 0 || offset + n2 * n2 > cells.capacity() )
+            throw new IndexOutOfBoundsException( "Board of side " + n2 + " at " + offset + " does not fit in " + cells.capacity() + " bytes" );
+        this.n2 = n2;
+        this.cells = cells;
+        this.offset = offset;
+    }
+
+    // The board holding the entries of board (-1 for blanks), with storage of its own
+    public static Board of( int[][] board ) {
+        Board b = new Board( board.length );
+        for( int i = 0; i < board.length; i++ )
+            for( int j = 0; j < board.length; j++ )
+                b.set( i, j, board[i][j] );
+        return b;
+    }
+
+    // Throws IllegalArgumentException unless n2 is n^2 for some n and not above MAX_SIDE
+    private static int checkSide( int n2 ) {
+        int n = (int) Math.round( Math.sqrt(n2) );
+        if( n < 1 || n * n != n2 || n2 > MAX_SIDE )
+            throw new IllegalArgumentException( "Side " + n2 + " is not n^2 for any n, or is above " + MAX_SIDE );
+        return n2;
+    }
+
+    public int sideLength() {
+        return n2;
+    }
+
+    // Entry (i,j), or -1 for a blank
+    public int get( int i, int j ) {
+        return get( i * n2 + j );
+    }
+
+    // Entry c of the board read row by row, or -1 for a blank
+    public int get( int c ) {
+        int v = cells.get( offset + c ) & 0xFF;
+        return v == 0 ? -1 : v;
+    }
+
+    // Sets entry (i,j) to v, or to a blank if v is -1
+    public void set( int i, int j, int v ) {
+        set( i * n2 + j, v );
+    }
+
+    public void set( int c, int v ) {
+        cells.put( offset + c, (byte) (v == -1 ? 0 : v) );
+    }
+
+    // The entries in a new array, with -1 for blanks
+    public int[][] toArray() {
+        int[][] board = new int[n2][n2];
+        for( int i = 0; i < n2; i++ )
+            for( int j = 0; j < n2; j++ )
+                board[i][j] = get( i, j );
+        return board;
+    }
+
+    // The board as a puzzle line, see PuzzleFormat
+    @Override
+    public String toString() {
+        return PuzzleFormat.format( toArray() );
+    }
+}
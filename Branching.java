@@ -0,0 +1,18 @@
+package sudokusolver;
+
+/**
+ * How Solver chooses what to branch on once propagation stalls (see Solver.setBranching).
+ */
+public enum Branching {
+    /** The first entry, by row and then column, with the fewest candidates */
+    SMALLEST,
+
+    /** An entry with the fewest candidates, preferring the one with most unknown entries in its row, column and block */
+    MRV_DEGREE,
+
+    /**
+     * Like MRV_DEGREE, unless some number fits in fewer places in a row or column than that entry
+     * has candidates, in which case the branches are the places that number can go
+     */
+    POSITIONS
+}
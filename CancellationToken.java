@@ -0,0 +1,17 @@
+package sudokusolver;
+
+/**
+ * Lets one thread ask solves running on others to give up. A token may be shared by any number
+ * of solves (see SolveLimits.withToken), and once cancelled it stays cancelled.
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,308 @@
+package sudokusolver;
+
+import java.util.Arrays;
+
+/**
+ * The canonical form of a board under the symmetries of sudoku: relabelling the numbers,
+ * permuting the bands (rows of blocks), the rows within a band, the stacks (columns of blocks)
+ * and the columns within a stack, and transposing. Boards which are symmetric copies of each
+ * other have equal keys, and the transformation found maps any grid of the board (such as its
+ * solution) to canonical form and back.
+ *
+ * The canonical form is the smallest board, read row by row with blanks as 0 and the numbers
+ * relabelled 1, 2, ... in order of first appearance, among the transformations which order the
+ * bands, rows, stacks and columns by decreasing numbers of clues (which symmetric copies agree
+ * on). It is found by a branch and bound search over the choices left, which gives up after
+ * MAX_NODES steps on boards with too many ties, such as nearly empty ones.
+ */
+public final class CanonicalForm {
+    static final int MAX_NODES = 100_000;
+
+    private final int n;                 // Block size of sudoku (standard sudoku has n = 3)
+    private final int n2;                // Side length of sudoku, equal to n^2
+    private boolean transpose;           // True if the board is transposed before rows and columns are permuted
+    private final int[] rowMap;          // Row r of the canonical form is row rowMap[r] of the (transposed) board
+    private final int[] colMap;          // Column c of the canonical form is column colMap[c]
+    private final int[] label;           // Entry d is the canonical label of number d, for d = 1,...,n2
+    private final int[] number;          // Entry l is the number with label l
+    private final int[] key;             // The canonical board, row by row with blanks as 0
+
+    // State of the search, see search()
+    private int[][] grid;                // The board in the orientation being searched
+    private boolean transposing;         // True if grid is the transposed board
+    private int[] rowCount;              // Number of clues in each row of grid
+    private int[] colCount;
+    private int[][] bandSig;             // Entry b holds the clue counts of the rows of band b in decreasing order
+    private int[][] stackSig;
+    private int[][] bandOrder;           // Entry B is the signature band B of the canonical form must have
+    private int[][] stackOrder;
+    private final boolean[] bandUsed;
+    private final boolean[] stackUsed;
+    private final boolean[] rowUsed;
+    private final boolean[] colUsed;
+    private final int[] bandOf;          // Band of grid chosen for each band of the canonical form
+    private final int[] stackOf;
+    private final int[] rows;            // Rows and columns of grid chosen so far
+    private final int[] cols;
+    private final int[] labels;          // Labels given so far
+    private final int[] labelled;        // Numbers in the order they were labelled, to undo labels
+    private int labelCount;
+    private int nodes;
+
+    private CanonicalForm( int n2 ) {
+        this.n2 = n2;
+        n = (int) Math.sqrt(n2);
+        rowMap = new int[n2];
+        colMap = new int[n2];
+        label = new int[n2 + 1];
+        number = new int[n2 + 1];
+        key = new int[n2 * n2];
+        bandUsed = new boolean[n];
+        stackUsed = new boolean[n];
+        rowUsed = new boolean[n2];
+        colUsed = new boolean[n2];
+        bandOf = new int[n];
+        stackOf = new int[n];
+        rows = new int[n2];
+        cols = new int[n2];
+        labels = new int[n2 + 1];
+        labelled = new int[n2];
+    }
+
+    /**
+     * Returns the canonical form of board (entries 1,...,n2, or -1 for blanks), or null if
+     * finding it takes too long.
+     */
+    public static CanonicalForm of( int[][] board ) {
+        CanonicalForm form = new CanonicalForm( board.length );
+        return form.search( board ) ? form : null;
+    }
+
+    // The canonical board, row by row with blanks as 0. Symmetric copies of a board have equal keys.
+    public int[] key() {
+        return key.clone();
+    }
+
+    // The key, shared rather than copied
+    int[] sharedKey() {
+        return key;
+    }
+
+    /**
+     * Returns g, a grid of the board such as its solution, in canonical form, row by row with
+     * blanks as 0.
+     */
+    public int[] toCanonical( int[][] g ) {
+        int[] canonical = new int[n2 * n2];
+        for( int r = 0; r < n2; r++ ) {
+            for( int c = 0; c < n2; c++ ) {
+                int v = transpose ? g[colMap[c]][rowMap[r]] : g[rowMap[r]][colMap[c]];
+                canonical[r * n2 + c] = v == -1 ? 0 : label[v];
+            }
+        }
+        return canonical;
+    }
+
+    // Writes canonical, a grid in canonical form, into g in the arrangement of the board
+    public void fromCanonical( int[] canonical, int[][] g ) {
+        for( int r = 0; r < n2; r++ ) {
+            for( int c = 0; c < n2; c++ ) {
+                int l = canonical[r * n2 + c];
+                int v = l == 0 ? -1 : number[l];
+                if( transpose )
+                    g[colMap[c]][rowMap[r]] = v;
+                else
+                    g[rowMap[r]][colMap[c]] = v;
+            }
+        }
+    }
+
+    // Find the canonical form of board. Returns false if the search gives up.
+    private boolean search( int[][] board ) {
+        Arrays.fill( key, Integer.MAX_VALUE );
+        for( int t = 0; t < 2 && nodes <= MAX_NODES; t++ ) {
+            grid = new int[n2][n2];
+            for( int i = 0; i < n2; i++ )
+                for( int j = 0; j < n2; j++ )
+                    grid[i][j] = t == 0 ? board[i][j] : board[j][i];
+            rowCount = new int[n2];
+            colCount = new int[n2];
+            for( int i = 0; i < n2; i++ ) {
+                for( int j = 0; j < n2; j++ ) {
+                    if( grid[i][j] != -1 ) {
+                        rowCount[i]++;
+                        colCount[j]++;
+                    }
+                }
+            }
+            bandSig = signatures( rowCount );
+            stackSig = signatures( colCount );
+            bandOrder = order( bandSig );
+            stackOrder = order( stackSig );
+            transposing = t == 1;
+            searchRows( 0 );
+        }
+        grid = null;
+        if( nodes > MAX_NODES )
+            return false;
+
+        int next = 0;                          // Numbers which are not on the board get the remaining labels in order
+        for( int d = 1; d <= n2; d++ )
+            if( label[d] != 0 )
+                next++;
+        for( int d = 1; d <= n2; d++ )
+            if( label[d] == 0 )
+                label[d] = ++next;
+        for( int d = 1; d <= n2; d++ )
+            number[label[d]] = d;
+        return true;
+    }
+
+    // The clue counts of each group of n consecutive lines, in decreasing order
+    private int[][] signatures( int[] counts ) {
+        int[][] sig = new int[n][n];
+        for( int b = 0; b < n; b++ ) {
+            for( int x = 0; x < n; x++ )
+                sig[b][x] = -counts[b * n + x];
+            Arrays.sort( sig[b] );
+            for( int x = 0; x < n; x++ )
+                sig[b][x] = -sig[b][x];
+        }
+        return sig;
+    }
+
+    // The signatures sorted in decreasing order
+    private static int[][] order( int[][] sig ) {
+        int[][] sorted = sig.clone();
+        Arrays.sort( sorted, (x, y) -> Arrays.compare( y, x ) );
+        return sorted;
+    }
+
+    // Choose the row of grid for row r of the canonical form, then the rest
+    private void searchRows( int r ) {
+        if( ++nodes > MAX_NODES )
+            return;
+        if( r == n2 ) {
+            record();
+            return;
+        }
+        int band = r / n;
+        if( r % n != 0 ) {
+            chooseRow( r, bandOf[band] );
+            return;
+        }
+        for( int b = 0; b < n && nodes <= MAX_NODES; b++ ) {
+            if( bandUsed[b] || !Arrays.equals( bandSig[b], bandOrder[band] ) )
+                continue;
+            bandUsed[b] = true;
+            bandOf[band] = b;
+            chooseRow( r, b );
+            bandUsed[b] = false;
+        }
+    }
+
+    // Try each row of band b which may go in row r of the canonical form
+    private void chooseRow( int r, int b ) {
+        for( int i = b * n; i < (b + 1) * n && nodes <= MAX_NODES; i++ ) {
+            if( rowUsed[i] || rowCount[i] != bandSig[b][r % n] )
+                continue;
+            rowUsed[i] = true;
+            rows[r] = i;
+            if( r == 0 ) {
+                searchCols( 0 );              // The columns are chosen along the first row
+            } else {
+                int mark = labelCount;
+                if( emitRow( r ) )
+                    searchRows( r + 1 );
+                unlabel( mark );
+            }
+            rowUsed[i] = false;
+        }
+    }
+
+    // Choose the column of grid for column c of the canonical form, then the rest
+    private void searchCols( int c ) {
+        if( ++nodes > MAX_NODES )
+            return;
+        if( c == n2 ) {
+            searchRows( 1 );
+            return;
+        }
+        int stack = c / n;
+        if( c % n != 0 ) {
+            chooseCol( c, stackOf[stack] );
+            return;
+        }
+        for( int s = 0; s < n && nodes <= MAX_NODES; s++ ) {
+            if( stackUsed[s] || !Arrays.equals( stackSig[s], stackOrder[stack] ) )
+                continue;
+            stackUsed[s] = true;
+            stackOf[stack] = s;
+            chooseCol( c, s );
+            stackUsed[s] = false;
+        }
+    }
+
+    // Try each column of stack s which may go in column c of the canonical form
+    private void chooseCol( int c, int s ) {
+        for( int j = s * n; j < (s + 1) * n && nodes <= MAX_NODES; j++ ) {
+            if( colUsed[j] || colCount[j] != stackSig[s][c % n] )
+                continue;
+            int mark = labelCount;
+            if( accept( c, labelOf( grid[rows[0]][j] ) ) ) {
+                colUsed[j] = true;
+                cols[c] = j;
+                searchCols( c + 1 );
+                colUsed[j] = false;
+            }
+            unlabel( mark );
+        }
+    }
+
+    // Compare row r of the canonical form so far with the best board. Returns false if it is worse.
+    private boolean emitRow( int r ) {
+        for( int c = 0; c < n2; c++ )
+            if( !accept( r * n2 + c, labelOf( grid[rows[r]][cols[c]] ) ) )
+                return false;
+        return true;
+    }
+
+    /**
+     * Compare value v at position pos with the best board, every earlier position being equal.
+     * Returns false if v is bigger. If it is smaller, the best board becomes the one being built.
+     */
+    private boolean accept( int pos, int v ) {
+        if( v > key[pos] )
+            return false;
+        if( v < key[pos] ) {
+            key[pos] = v;
+            Arrays.fill( key, pos + 1, key.length, Integer.MAX_VALUE );
+        }
+        return true;
+    }
+
+    // Label of entry v of grid (0 for blanks), giving it the next label if it has none yet
+    private int labelOf( int v ) {
+        if( v == -1 )
+            return 0;
+        if( labels[v] == 0 ) {
+            labelled[labelCount++] = v;
+            labels[v] = labelCount;
+        }
+        return labels[v];
+    }
+
+    // Take back the labels given after the first mark
+    private void unlabel( int mark ) {
+        while( labelCount > mark )
+            labels[labelled[--labelCount]] = 0;
+    }
+
+    // Remember the transformation giving the board just completed, which equals the best board
+    private void record() {
+        transpose = transposing;
+        System.arraycopy( rows, 0, rowMap, 0, n2 );
+        System.arraycopy( cols, 0, colMap, 0, n2 );
+        System.arraycopy( labels, 0, label, 0, n2 + 1 );
+    }
+}
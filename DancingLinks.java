@@ -0,0 +1,267 @@
+package sudokusolver;
+
+import java.util.Arrays;
+
+/**
+ * Solves n^2 x n^2 sudokus as an exact cover problem, using Knuth's Algorithm X with dancing links.
+ * The matrix has a row for each entry (i,j) and number v, and columns for the four constraints
+ * (entry filled, v in row i, v in column j, v in block), so each row has exactly four nodes.
+ * All links are kept in int arrays indexed by node, and the search keeps its own stack, so the
+ * search creates no objects and its depth is not limited by the Java stack.
+ */
+public class DancingLinks {
+    private int n;                       // Block size of sudoku (standard sudoku has n = 3)
+    private int n2;                      // Side length of sudoku, equal to n^2
+    private int[][] board;               // The sudoku board. A -1 is interpreted as an empty entry
+    private int first;                   // Index of the first row node; 0 is the root and 1,...,first - 1 are column headers
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;                // Column header of each node
+    private int[] size;                  // Number of nodes in each column
+    private int[] choice;                // Row node chosen at each level of the search
+    private long nodes;                  // Rows tried by the search
+    private long backtracks;             // Rows which were undone
+    private int maxDepth;                // Deepest level of the search reached
+
+    public DancingLinks( int[][] board ) {
+        reset( board );
+    }
+
+    /**
+     * Makes this start afresh on board, which is solved in place. The arrays are reused when
+     * board has the same size as the last one, so only the links are rebuilt.
+     */
+    public void reset( int[][] board ) {
+        if( left == null || board.length != n2 )
+            allocate( board.length );
+        this.board = board;
+        nodes = 0;
+        backtracks = 0;
+        maxDepth = 0;
+        link();
+    }
+
+    // Create the arrays for boards of side n2
+    private void allocate( int n2 ) {
+        this.n2 = n2;
+        n = (int) Math.sqrt(n2);
+        int cells = n2 * n2;
+        first = 4 * cells + 1;
+        int total = first + 4 * cells * n2;
+        left = new int[total];
+        right = new int[total];
+        up = new int[total];
+        down = new int[total];
+        column = new int[total];
+        size = new int[first];
+        choice = new int[cells];
+    }
+
+    // Link the whole matrix, with no rows selected
+    private void link() {
+        int cells = n2 * n2;
+        int columns = 4 * cells;
+        Arrays.fill( size, 0 );
+        for( int c = 0; c < first; c++ ) {      // Link root and column headers in a circle
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+        }
+
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                int b = (i / n) * n + j / n;
+                for( int k = 0; k < n2; k++ ) {
+                    int node = rowNode( i, j, k );
+                    addNode( node, 1 + i * n2 + j );
+                    addNode( node + 1, 1 + cells + i * n2 + k );
+                    addNode( node + 2, 1 + 2 * cells + j * n2 + k );
+                    addNode( node + 3, 1 + 3 * cells + b * n2 + k );
+                    for( int t = 0; t < 4; t++ ) {
+                        left[node + t] = node + (t + 3) % 4;
+                        right[node + t] = node + (t + 1) % 4;
+                    }
+                }
+            }
+        }
+    }
+
+    // First node of the row for number k + 1 in entry (i,j)
+    private int rowNode( int i, int j, int k ) {
+        return first + 4 * ((i * n2 + j) * n2 + k);
+    }
+
+    // Add node to the bottom of column c
+    private void addNode( int node, int c ) {
+        column[node] = c;
+        up[node] = up[c];
+        down[node] = c;
+        down[up[c]] = node;
+        up[c] = node;
+        size[c]++;
+    }
+
+    // Solves sudoku if possible. Returns true if board was solved, false if board was invalid.
+    public boolean solve() {
+        return solve( null );
+    }
+
+    /**
+     * Solves sudoku like solve(), adding the search counters to stats (see SolveStats).
+     * If stats is null nothing is recorded.
+     */
+    public boolean solve( SolveStats stats ) {
+        long start = stats == null ? 0 : System.nanoTime();
+        boolean solved = selectGivens() && search(1) == 1;
+
+        if( stats != null ) {
+            stats.solves++;
+            stats.searchNodes += nodes;
+            stats.backtracks += backtracks;
+            stats.maxDepth = Math.max( stats.maxDepth, maxDepth );
+            stats.searchNanos += System.nanoTime() - start;
+        }
+        return solved;
+    }
+
+    /**
+     * Counts the solutions of the sudoku, stopping once limit (at least 1) have been found, so
+     * the result is the number of solutions or limit, whichever is smaller. If there is a
+     * solution, board is left holding the first one found.
+     */
+    public int countSolutions( int limit ) {
+        if( limit < 1 )
+            throw new IllegalArgumentException( "limit must be positive" );
+        return selectGivens() ? search(limit) : 0;
+    }
+
+    // Returns true if the sudoku has exactly one solution
+    public boolean hasUniqueSolution() {
+        return countSolutions(2) == 1;
+    }
+
+    // Select the rows of the entries already on the board. Returns false if two of them conflict.
+    private boolean selectGivens() {
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                if( board[i][j] == -1 )
+                    continue;
+                int node = rowNode( i, j, board[i][j] - 1 );
+                for( int t = 0; t < 4; t++ ) {
+                    int c = column[node + t];
+                    if( right[left[c]] != c )    // Column already covered by another given
+                        return false;
+                }
+                for( int t = 0; t < 4; t++ )
+                    cover( column[node + t] );
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Search for exact covers of the remaining columns, always branching on the column with
+     * fewest nodes, until limit of them are found. The rows of the first one are written to
+     * board. Returns the number found.
+     */
+    private int search( int limit ) {
+        if( right[0] == 0 )
+            return 1;
+
+        int solutions = 0;
+        int level = 0;
+        int c = minColumn();
+        cover( c );
+        int r = down[c];
+        while( true ) {
+            if( r != c ) {                              // Try row r
+                nodes++;
+                choice[level++] = r;
+                if( level > maxDepth )
+                    maxDepth = level;
+                for( int j = right[r]; j != r; j = right[j] )
+                    cover( column[j] );
+                if( right[0] == 0 ) {                   // Every column covered
+                    if( ++solutions == 1 )
+                        writeSolution( level );
+                    if( solutions == limit )
+                        return solutions;
+                    r = choice[--level];                // Undo row r and go on with the next row of its column
+                    c = column[r];
+                    for( int j = left[r]; j != r; j = left[j] )
+                        uncover( column[j] );
+                    r = down[r];
+                    continue;
+                }
+                c = minColumn();
+                cover( c );
+                r = down[c];
+            } else {                                    // Column c has no rows left, so backtrack
+                uncover( c );
+                if( level == 0 )
+                    return solutions;
+                backtracks++;
+                r = choice[--level];
+                c = column[r];
+                for( int j = left[r]; j != r; j = left[j] )
+                    uncover( column[j] );
+                r = down[r];
+            }
+        }
+    }
+
+    // Returns the column with fewest nodes
+    private int minColumn() {
+        int best = right[0];
+        for( int c = right[best]; c != 0 && size[best] > 0; c = right[c] ) {
+            if( size[c] < size[best] )
+                best = c;
+        }
+        return best;
+    }
+
+    // Remove column c, and every row with a node in column c from the other columns
+    private void cover( int c ) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for( int i = down[c]; i != c; i = down[i] ) {
+            for( int j = right[i]; j != i; j = right[j] ) {
+                up[down[j]] = up[j];
+                down[up[j]] = down[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    // Undo cover( c )
+    private void uncover( int c ) {
+        for( int i = up[c]; i != c; i = up[i] ) {
+            for( int j = left[i]; j != i; j = left[j] ) {
+                size[column[j]]++;
+                up[down[j]] = j;
+                down[up[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+
+    // Write the entries of the rows chosen at levels 0,...,level - 1 to board
+    private void writeSolution( int level ) {
+        for( int l = 0; l < level; l++ ) {
+            int row = (choice[l] - first) / 4;    // Equal to (i*n2 + j)*n2 + k
+            int k = row % n2;
+            int j = (row / n2) % n2;
+            int i = row / n2 / n2;
+            board[i][j] = k + 1;
+        }
+    }
+
+    public int[][] getBoard() {
+        return board;
+    }
+}
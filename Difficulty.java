@@ -0,0 +1,36 @@
+package sudokusolver;
+
+/**
+ * How hard a puzzle is for Solver, judged by what it needed to solve the puzzle.
+ */
+public enum Difficulty {
+    /** Solved by propagating known entries alone */
+    EASY,
+    /** Needed deduction rules (see Rule), but no search */
+    MEDIUM,
+    /** Needed search */
+    HARD;
+
+    /**
+     * Rates puzzle by solving a copy of it with Solver. Returns null if the puzzle is invalid.
+     */
+    public static Difficulty rate( int[][] puzzle ) {
+        return rate( puzzle, new int[puzzle.length][puzzle.length] );
+    }
+
+    // Rates puzzle like rate(puzzle), solving it in scratch, a board of the same size, with the Solver of this thread
+    static Difficulty rate( int[][] puzzle, int[][] scratch ) {
+        for( int i = 0; i < puzzle.length; i++ )
+            System.arraycopy( puzzle[i], 0, scratch[i], 0, puzzle.length );
+
+        SolveStats stats = new SolveStats();
+        if( !Engine.RULES.solve( scratch, stats ) )
+            return null;
+        if( stats.searchNodes > 0 )
+            return HARD;
+        for( Rule rule : Rule.values() )
+            if( stats.eliminations[SolveStats.index(rule)] > 0 )
+                return MEDIUM;
+        return EASY;
+    }
+}
@@ -0,0 +1,80 @@
+package sudokusolver;
+
+/**
+ * The available ways of solving a board. Every engine solves the board in place and returns
+ * true if it was solved, false if it was invalid. Each thread keeps one solver per engine,
+ * reset for every board, so once a thread has solved a board of some size, solving more of
+ * that size allocates nothing.
+ */
+public enum Engine {
+    /** Constraint propagation with the rules of Solver, searching only when they stall */
+    RULES {
+        @Override
+        public boolean solve( int[][] board, SolveStats stats ) {
+            return solver( board ).solve( stats );
+        }
+
+        @Override
+        public int countSolutions( int[][] board, int limit ) {
+            return solver( board ).countSolutions( limit );
+        }
+    },
+
+    /** Exact cover search with dancing links (see DancingLinks) */
+    DANCING_LINKS {
+        @Override
+        public boolean solve( int[][] board, SolveStats stats ) {
+            return links( board ).solve( stats );
+        }
+
+        @Override
+        public int countSolutions( int[][] board, int limit ) {
+            return links( board ).countSolutions( limit );
+        }
+    };
+
+    private static final ThreadLocal<Solver> SOLVERS = new ThreadLocal<>();
+    private static final ThreadLocal<DancingLinks> LINKS = new ThreadLocal<>();
+
+    // The Solver of this thread, reset to board
+    private static Solver solver( int[][] board ) {
+        Solver solver = SOLVERS.get();
+        if( solver == null ) {
+            solver = new Solver( board );
+            SOLVERS.set( solver );
+        } else {
+            solver.reset( board );
+        }
+        return solver;
+    }
+
+    // The DancingLinks of this thread, reset to board
+    private static DancingLinks links( int[][] board ) {
+        DancingLinks links = LINKS.get();
+        if( links == null ) {
+            links = new DancingLinks( board );
+            LINKS.set( links );
+        } else {
+            links.reset( board );
+        }
+        return links;
+    }
+
+    // Solves board in place, adding counters of the work done to stats unless it is null
+    public abstract boolean solve( int[][] board, SolveStats stats );
+
+    public boolean solve( int[][] board ) {
+        return solve( board, null );
+    }
+
+    /**
+     * Counts the solutions of board, stopping at limit (at least 1). If there is a solution,
+     * board is left holding one of them.
+     */
+    public abstract int countSolutions( int[][] board, int limit );
+
+    // Returns true if board has exactly one solution
+    public boolean hasUniqueSolution( int[][] board ) {
+        return countSolutions( board, 2 ) == 1;
+    }
+}
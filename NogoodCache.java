@@ -0,0 +1,136 @@
+package sudokusolver;
+
+import java.util.Arrays;
+
+/**
+ * A bounded store of nogoods for Solver: sets of placements (as (i*n2 + j)*n2 + k, for number
+ * k + 1 in entry (i,j)) which the search has shown cannot all hold in a solution. Each nogood
+ * is listed under every one of its placements, so the nogoods a new placement might complete
+ * are found directly. Once the cache is full, nogoods are evicted by the clock algorithm: the
+ * hand skips (and resets) nogoods which have pruned a branch since it last passed them.
+ */
+final class NogoodCache {
+    static final int MAX_SIZE = 32;         // Longer nogoods are rarely complete again, so they are not kept
+
+    private final int capacity;
+    private final int n2;
+    private final int[] placements;         // Entry slot*MAX_SIZE + p is placement p of the nogood in slot
+    private final int[] sizes;              // Number of placements of the nogood in each slot
+    private final boolean[] used;           // True if the nogood in the slot pruned a branch since the hand passed
+    private final int[] head;               // First entry (as slot*MAX_SIZE + p) listed under each placement, -1 if none
+    private final int[] next;               // Next and previous entries listed under the same placement
+    private final int[] prev;
+    private int count;
+    private int hand;
+
+    NogoodCache( int n2, int capacity ) {
+        this.n2 = n2;
+        this.capacity = capacity;
+        placements = new int[capacity * MAX_SIZE];
+        sizes = new int[capacity];
+        used = new boolean[capacity];
+        head = new int[n2 * n2 * n2];
+        next = new int[capacity * MAX_SIZE];
+        prev = new int[capacity * MAX_SIZE];
+        Arrays.fill( head, -1 );
+    }
+
+    // Number of nogoods held
+    int size() {
+        return count;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    // Forget every nogood, for a new puzzle
+    void clear() {
+        Arrays.fill( head, -1 );
+        count = 0;
+        hand = 0;
+    }
+
+    /**
+     * Adds the nogood made of the first size entries of nogood, evicting another one if the cache
+     * is full. Returns false if it is too long to keep.
+     */
+    boolean add( int[] nogood, int size ) {
+        if( size == 0 || size > MAX_SIZE )
+            return false;
+
+        int slot;
+        if( count < capacity ) {
+            slot = count++;
+        } else {
+            while( used[hand] ) {               // Second chance for nogoods which have been useful
+                used[hand] = false;
+                hand = (hand + 1) % capacity;
+            }
+            slot = hand;
+            hand = (hand + 1) % capacity;
+            for( int p = 0; p < sizes[slot]; p++ )
+                unlink( slot * MAX_SIZE + p );
+        }
+
+        sizes[slot] = size;
+        used[slot] = false;
+        for( int p = 0; p < size; p++ ) {
+            int e = slot * MAX_SIZE + p;
+            int c = nogood[p];
+            placements[e] = c;
+            prev[e] = -1;
+            next[e] = head[c];
+            if( head[c] != -1 )
+                prev[head[c]] = e;
+            head[c] = e;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the slot of a nogood containing placement c whose other placements all hold on
+     * the board cells (entry (i,j) at i*n2 + j), or -1 if there is none. Such a nogood means c
+     * cannot be placed.
+     */
+    int find( int c, int[] cells ) {
+        for( int e = head[c]; e != -1; e = next[e] ) {
+            int slot = e / MAX_SIZE;
+            if( holds( slot, c, cells ) ) {
+                used[slot] = true;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Number of placements of the nogood in slot
+    int size( int slot ) {
+        return sizes[slot];
+    }
+
+    // Placement p of the nogood in slot
+    int placement( int slot, int p ) {
+        return placements[slot * MAX_SIZE + p];
+    }
+
+    // Returns true if every placement of the nogood in slot other than c holds on cells
+    private boolean holds( int slot, int c, int[] cells ) {
+        for( int p = 0; p < sizes[slot]; p++ ) {
+            int d = placements[slot * MAX_SIZE + p];
+            if( d != c && cells[d / n2] != d % n2 + 1 )
+                return false;
+        }
+        return true;
+    }
+
+    // Removes entry e from the list of its placement
+    private void unlink( int e ) {
+        if( prev[e] != -1 )
+            next[prev[e]] = next[e];
+        else
+            head[placements[e]] = next[e];
+        if( next[e] != -1 )
+            prev[next[e]] = prev[e];
+    }
+}
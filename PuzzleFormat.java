@@ -0,0 +1,125 @@
+package sudokusolver;
+
+/**
+ * Converts between boards and the common one-line puzzle format, in which a puzzle is written as
+ * its n2*n2 entries row by row. Blanks are written as '.' or '0', and the numbers 1,...,n2 as
+ * '1',...,'9' followed by 'A','B',... (so 16x16 puzzles use '1'-'9' and 'A'-'G'). Puzzles with
+ * more numbers than that (36x36 and larger) are written in decimal with the entries separated by
+ * commas, as in "12,.,7,...", which is read for puzzles of any size.
+ */
+public final class PuzzleFormat {
+    static final int MAX_SINGLE = 35;                    // Largest number written as a single character
+    private static final int[] VALUES = new int[128];    // Entry for each ASCII character, -1 for blanks and 0 for invalid characters
+
+    static {
+        for( char c = 0; c < 128; c++ ) {
+            int num = Character.digit( c, Character.MAX_RADIX );
+            VALUES[c] = num > 0 ? num : 0;
+        }
+        VALUES['.'] = -1;
+        VALUES['0'] = -1;
+    }
+
+    private PuzzleFormat() {
+    }
+
+    /**
+     * Returns the board written in line, with -1 for blanks. Throws IllegalArgumentException if
+     * the length of line is not n^4 for some n, or line contains an entry which is not 1,...,n2.
+     */
+    public static int[][] parse( CharSequence line ) {
+        int commas = 0;
+        for( int p = 0; p < line.length(); p++ )
+            if( line.charAt(p) == ',' )
+                commas++;
+        if( commas == 0 ) {
+            int n2 = sideLength( line.length() );
+            int[][] board = new int[n2][n2];
+            for( int i = 0; i < n2; i++ )
+                for( int j = 0; j < n2; j++ )
+                    board[i][j] = decode( line.charAt(i * n2 + j), n2 );
+            return board;
+        }
+
+        int n2 = sideLength( commas + 1 );
+        int[][] board = new int[n2][n2];
+        int p = 0;
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                int end = p;
+                while( end < line.length() && line.charAt(end) != ',' )
+                    end++;
+                board[i][j] = decodeNumber( line, p, end, n2 );
+                p = end + 1;
+            }
+        }
+        return board;
+    }
+
+    // Returns the puzzle line for board
+    public static String format( int[][] board ) {
+        int n2 = board.length;
+        StringBuilder sb = new StringBuilder( n2 * n2 );
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                if( n2 <= MAX_SINGLE ) {
+                    sb.append( encode( board[i][j] ) );
+                } else {
+                    if( i > 0 || j > 0 )
+                        sb.append( ',' );
+                    if( board[i][j] == -1 )
+                        sb.append( '.' );
+                    else
+                        sb.append( board[i][j] );
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the side length n2 of a puzzle whose line has the given length. Throws
+     * IllegalArgumentException if length is not n^4 for some n.
+     */
+    public static int sideLength( int length ) {
+        int n2 = (int) Math.round( Math.sqrt(length) );
+        int n = (int) Math.round( Math.sqrt(n2) );
+        if( n < 1 || n2 != n * n || length != n2 * n2 )
+            throw new IllegalArgumentException( "Puzzle length " + length + " is not n^4 for any n" );
+        return n2;
+    }
+
+    // Returns the entry written as c, or -1 for a blank
+    static int decode( int c, int n2 ) {
+        int num = c >= 0 && c < 128 ? VALUES[c] : 0;
+        if( num == 0 || num > n2 )
+            throw new IllegalArgumentException( "Invalid entry '" + (char) c + "' for " + n2 + "x" + n2 + " puzzle" );
+        return num;
+    }
+
+    /**
+     * Returns the entry written in decimal as the characters from start up to end of s, or -1
+     * for a blank ('.' or '0').
+     */
+    static int decodeNumber( CharSequence s, int start, int end, int n2 ) {
+        if( end - start == 1 && s.charAt(start) == '.' )
+            return -1;
+        int num = 0;
+        for( int p = start; p < end; p++ ) {
+            char c = s.charAt( p );
+            if( c < '0' || c > '9' || num > n2 )
+                throw new IllegalArgumentException( "Invalid entry '" + s.subSequence( start, end ) + "' for " + n2 + "x" + n2 + " puzzle" );
+            num = 10 * num + c - '0';
+        }
+        if( start == end || num > n2 )
+            throw new IllegalArgumentException( "Invalid entry '" + s.subSequence( start, end ) + "' for " + n2 + "x" + n2 + " puzzle" );
+        return num == 0 ? -1 : num;
+    }
+
+    // Returns the character for entry, '.' for a blank
+    static char encode( int entry ) {
+        if( entry == -1 )
+            return '.';
+        return Character.toUpperCase( Character.forDigit( entry, Character.MAX_RADIX ) );
+    }
+}
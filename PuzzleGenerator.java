@@ -0,0 +1,168 @@
+package sudokusolver;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates n^2 x n^2 puzzles with a unique solution. A random full grid is made, and clues are
+ * removed in random order as long as the solution stays unique (checked with dancing links) and
+ * the puzzle does not become harder than the target difficulty. Puzzle number i of a run only
+ * depends on the seed and i, so runs are reproducible however many threads are used.
+ */
+public class PuzzleGenerator {
+    private static final int ATTEMPTS = 100;    // Grids tried per puzzle before settling for an easier puzzle than the target
+    private static final int SEEDINGS = 8;      // Random diagonals tried for a full grid before seeding only its first block
+
+    private final int n;                 // Block size of sudoku (standard sudoku has n = 3)
+    private final int n2;                // Side length of sudoku, equal to n^2
+    private final long seed;
+
+    public PuzzleGenerator( int n, long seed ) {
+        if( n < 1 )
+            throw new IllegalArgumentException( "n must be positive" );
+        this.n = n;
+        n2 = n * n;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates puzzles 0,...,count - 1 of the given difficulty on the given number of threads.
+     * If no puzzle of that difficulty is found for some number within a bounded number of
+     * attempts, the hardest one found is used instead.
+     */
+    public int[][][] generate( int count, Difficulty target, int threads ) throws InterruptedException {
+        int[][][] puzzles = new int[count][][];
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for( int i = next.getAndIncrement(); i < count; i = next.getAndIncrement() )
+                puzzles[i] = generate( i, target );
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool( threads );
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for( int t = 0; t < threads; t++ )
+                futures[t] = pool.submit( worker );
+            for( Future<?> future : futures )
+                future.get();
+        } catch( ExecutionException ex ) {
+            throw new IllegalStateException( "Generator failed", ex.getCause() );
+        } finally {
+            pool.shutdownNow();
+        }
+        return puzzles;
+    }
+
+    // Generates puzzle number index, of the target difficulty if possible
+    public int[][] generate( long index, Difficulty target ) {
+        SplittableRandom random = new SplittableRandom( seed ^ (index * 0x9E3779B97F4A7C15L) );
+        int[][] best = null;
+        Difficulty bestDifficulty = null;
+        for( int attempt = 0; attempt < ATTEMPTS; attempt++ ) {
+            int[][] puzzle = removeClues( fullGrid(random), target, random );
+            Difficulty difficulty = Difficulty.rate( puzzle );
+            if( difficulty == target )
+                return puzzle;
+            if( best == null || difficulty.compareTo( bestDifficulty ) > 0 ) {
+                best = puzzle;
+                bestDifficulty = difficulty;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns a random full grid. The diagonal blocks are independent, so they are filled with
+     * random permutations, and the rest is completed by dancing links. Random diagonals cannot
+     * always be completed (often not for n = 2), so after SEEDINGS failures only the first block
+     * is filled, which always can be. The rows, columns and numbers of the result are then
+     * shuffled, since the completion is not random.
+     */
+    int[][] fullGrid( SplittableRandom random ) {
+        int[][] grid = new int[n2][n2];
+        for( int seeding = 0; ; seeding++ ) {
+            for( int[] row : grid )
+                Arrays.fill( row, -1 );
+            int blocks = seeding < SEEDINGS ? n : 1;
+            for( int b = 0; b < blocks; b++ ) {
+                int[] perm = permutation( n2, random );
+                for( int t = 0; t < n2; t++ )
+                    grid[b * n + t / n][b * n + t % n] = perm[t] + 1;
+            }
+            if( Engine.DANCING_LINKS.solve( grid ) )
+                break;
+            if( blocks == 1 )                   // Cannot happen: one block fits into every grid
+                throw new IllegalStateException( "No grid completes block " + Arrays.deepToString( grid ) );
+        }
+
+        int[] numbers = permutation( n2, random );
+        int[] rows = unitPermutation( random );
+        int[] cols = unitPermutation( random );
+        boolean transpose = random.nextBoolean();
+        int[][] shuffled = new int[n2][n2];
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                int v = numbers[grid[rows[i]][cols[j]] - 1] + 1;
+                if( transpose )
+                    shuffled[j][i] = v;
+                else
+                    shuffled[i][j] = v;
+            }
+        }
+        return shuffled;
+    }
+
+    /**
+     * Removes clues from grid in random order, keeping each removal only if the solution stays
+     * unique and the puzzle is no harder than target. Returns grid. The checks reuse the solvers
+     * of this thread (see Engine) and one scratch board, so they allocate next to nothing.
+     */
+    private int[][] removeClues( int[][] grid, Difficulty target, SplittableRandom random ) {
+        int[][] scratch = new int[n2][n2];
+        int[] order = permutation( n2 * n2, random );
+        for( int c : order ) {
+            int i = c / n2;
+            int j = c % n2;
+            int v = grid[i][j];
+            grid[i][j] = -1;
+
+            for( int r = 0; r < n2; r++ )
+                System.arraycopy( grid[r], 0, scratch[r], 0, n2 );
+            if( !Engine.DANCING_LINKS.hasUniqueSolution( scratch )
+                    || (target != Difficulty.HARD && Difficulty.rate( grid, scratch ).compareTo( target ) > 0) )
+                grid[i][j] = v;
+        }
+        return grid;
+    }
+
+    // A random permutation of 0,...,size - 1
+    private static int[] permutation( int size, SplittableRandom random ) {
+        int[] perm = new int[size];
+        for( int t = 0; t < size; t++ )
+            perm[t] = t;
+        for( int t = size - 1; t > 0; t-- ) {
+            int s = random.nextInt( t + 1 );
+            int tmp = perm[t];
+            perm[t] = perm[s];
+            perm[s] = tmp;
+        }
+        return perm;
+    }
+
+    // A random permutation of the rows (or columns) which keeps every block row together
+    private int[] unitPermutation( SplittableRandom random ) {
+        int[] bands = permutation( n, random );
+        int[] perm = new int[n2];
+        for( int b = 0; b < n; b++ ) {
+            int[] within = permutation( n, random );
+            for( int t = 0; t < n; t++ )
+                perm[b * n + t] = bands[b] * n + within[t];
+        }
+        return perm;
+    }
+}
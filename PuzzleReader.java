@@ -0,0 +1,133 @@
+package sudokusolver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads puzzles in the format of PuzzleFormat (single characters or comma separated numbers), one
+ * per line, from a memory-mapped file.
+ * The file is mapped one window at a time, so files of any size can be read, and each puzzle
+ * is decoded straight from the mapped bytes into a board supplied by the caller.
+ */
+public class PuzzleReader implements Closeable {
+    private static final int WINDOW = 1 << 28;    // Bytes mapped at a time
+
+    private final FileChannel channel;
+    private final long size;                      // Size of the file in bytes
+    private MappedByteBuffer buffer;              // The mapped window, starting at offset base of the file
+    private long base;
+    private int start;                            // Position in buffer of the next puzzle, or of whitespace before it
+    private int length = -1;                      // Length of the next puzzle, -1 if not yet found
+    private int commas;                           // Commas in the next puzzle, 0 unless its entries are numbers
+
+    public PuzzleReader( Path path ) throws IOException {
+        channel = FileChannel.open( path, StandardOpenOption.READ );
+        size = channel.size();
+        map( 0 );
+    }
+
+    /**
+     * Returns the side length n2 of the next puzzle, or -1 if there are no more puzzles. Throws
+     * IllegalArgumentException if the number of entries on the next line is not n^4 for some n.
+     */
+    public int nextSideLength() throws IOException {
+        if( length == -1 && !findNext() )
+            return -1;
+        return PuzzleFormat.sideLength( commas == 0 ? length : commas + 1 );
+    }
+
+    /**
+     * Reads the next puzzle into board, with -1 for blanks. Returns false if there are no more
+     * puzzles. Throws IllegalArgumentException if the next puzzle does not fit board or contains
+     * an invalid entry.
+     */
+    public boolean next( int[][] board ) throws IOException {
+        int n2 = nextSideLength();
+        if( n2 == -1 )
+            return false;
+        if( n2 != board.length )
+            throw new IllegalArgumentException( "Puzzle of side " + n2 + " does not fit board of side " + board.length );
+
+        int p = start;
+        if( commas == 0 ) {
+            for( int i = 0; i < n2; i++ )
+                for( int j = 0; j < n2; j++ )
+                    board[i][j] = PuzzleFormat.decode( buffer.get(p++), n2 );
+        } else {
+            for( int i = 0; i < n2; i++ )
+                for( int j = 0; j < n2; j++ )
+                    p = decodeNumber( p, board[i], j, n2 );
+        }
+        start += length;
+        length = -1;
+        return true;
+    }
+
+    /**
+     * Reads the number (or blank) written in decimal at position p of buffer into entry j of
+     * boardRow. Returns the position after the comma that follows it.
+     */
+    private int decodeNumber( int p, int[] boardRow, int j, int n2 ) {
+        int end = start + length;
+        if( buffer.get(p) == '.' && (p + 1 == end || buffer.get(p + 1) == ',') ) {
+            boardRow[j] = -1;
+            return p + 2;
+        }
+        int first = p;
+        int num = 0;
+        for( ; p < end && buffer.get(p) != ','; p++ ) {
+            int c = buffer.get( p );
+            if( c < '0' || c > '9' || num > n2 )
+                throw new IllegalArgumentException( "Invalid entry at column " + (first - start) + " for " + n2 + "x" + n2 + " puzzle" );
+            num = 10 * num + c - '0';
+        }
+        if( p == first || num > n2 )
+            throw new IllegalArgumentException( "Invalid entry at column " + (first - start) + " for " + n2 + "x" + n2 + " puzzle" );
+        boardRow[j] = num == 0 ? -1 : num;
+        return p + 1;
+    }
+
+    /**
+     * Moves start to the beginning of the next line which is not blank and sets length to its length,
+     * remapping the window if the line does not fit in it. Returns false at the end of the file.
+     */
+    private boolean findNext() throws IOException {
+        while( true ) {
+            int limit = buffer.limit();
+            while( start < limit && isSpace( buffer.get(start) ) )
+                start++;
+            int p = start;
+            commas = 0;
+            for( ; p < limit && !isSpace( buffer.get(p) ); p++ )
+                if( buffer.get(p) == ',' )
+                    commas++;
+
+            if( p < limit || base + limit == size ) {    // Found the whole line, or reached the end of the file
+                length = p > start ? p - start : -1;
+                return length != -1;
+            }
+            if( start == 0 )
+                throw new IOException( "Line longer than " + WINDOW + " bytes" );
+            map( base + start );                         // Line runs past the window, so map a window starting at the line
+        }
+    }
+
+    private void map( long offset ) throws IOException {
+        base = offset;
+        buffer = channel.map( FileChannel.MapMode.READ_ONLY, offset, Math.min( WINDOW, size - offset ) );
+        start = 0;
+    }
+
+    private static boolean isSpace( byte b ) {
+        return b == '\n' || b == '\r' || b == ' ' || b == '\t';
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,88 @@
+package sudokusolver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes boards in the format of PuzzleFormat, one per line, through a buffered file channel.
+ * Boards larger than 35x35 are written as comma separated numbers. No strings are created per board.
+ */
+public class PuzzleWriter implements Closeable {
+    private static final byte[] INVALID = { 'i', 'n', 'v', 'a', 'l', 'i', 'd', '\n' };
+    private static final byte[] TIMEOUT = { 't', 'i', 'm', 'e', 'o', 'u', 't', '\n' };
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect( 1 << 16 );
+
+    public PuzzleWriter( Path path ) throws IOException {
+        channel = FileChannel.open( path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING );
+    }
+
+    // Writes board as one line
+    public void write( int[][] board ) throws IOException {
+        int n2 = board.length;
+        int width = n2 <= PuzzleFormat.MAX_SINGLE ? 1 : Integer.toString( n2 ).length() + 1;    // Most bytes per entry
+        for( int i = 0; i < n2; i++ ) {
+            if( buffer.remaining() < n2 * width + 1 )
+                flush();
+            for( int j = 0; j < n2; j++ ) {
+                if( width == 1 ) {
+                    buffer.put( (byte) PuzzleFormat.encode( board[i][j] ) );
+                } else {
+                    if( i > 0 || j > 0 )
+                        buffer.put( (byte) ',' );
+                    putNumber( board[i][j] );
+                }
+            }
+        }
+        buffer.put( (byte) '\n' );
+    }
+
+    // Writes entry in decimal, or '.' for a blank
+    private void putNumber( int entry ) {
+        if( entry == -1 ) {
+            buffer.put( (byte) '.' );
+            return;
+        }
+        int divisor = 1;
+        while( divisor * 10 <= entry )
+            divisor *= 10;
+        for( ; divisor > 0; divisor /= 10 )
+            buffer.put( (byte) ('0' + entry / divisor % 10) );
+    }
+
+    // Writes the line "invalid", for a board which could not be solved
+    public void writeInvalid() throws IOException {
+        if( buffer.remaining() < INVALID.length )
+            flush();
+        buffer.put( INVALID );
+    }
+
+    // Writes the line "timeout", for a board which was given up on
+    public void writeTimeout() throws IOException {
+        if( buffer.remaining() < TIMEOUT.length )
+            flush();
+        buffer.put( TIMEOUT );
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while( buffer.hasRemaining() )
+            channel.write( buffer );
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
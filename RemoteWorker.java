@@ -0,0 +1,103 @@
+package sudokusolver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A worker for a SolveCoordinator, usually in a process of its own: it connects to the
+ * coordinator and searches the subproblems it is sent, one at a time, until the coordinator
+ * closes the connection. The search runs on a thread of its own, so that a CANCEL from the
+ * coordinator can stop it (see SolveLimits). One Solver is reset for each subproblem.
+ */
+public class RemoteWorker implements Runnable, AutoCloseable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;                           // Written only by the searching thread
+    private Solver solver;                              // Likewise used only by the searching thread
+    private Thread search;                              // The thread searching the current subproblem, if any
+    private volatile long current = -1;                 // Id of the subproblem being searched, -1 for none
+    private volatile CancellationToken token;           // Token of the current subproblem
+
+    public RemoteWorker( String host, int port ) throws IOException {
+        socket = new Socket( host, port );
+        socket.setTcpNoDelay( true );
+        in = new BufferedReader( new InputStreamReader( socket.getInputStream(), StandardCharsets.UTF_8 ) );
+        out = new BufferedWriter( new OutputStreamWriter( socket.getOutputStream(), StandardCharsets.UTF_8 ) );
+    }
+
+    // Serve the coordinator until it closes the connection
+    @Override
+    public void run() {
+        try {
+            for( String line = in.readLine(); line != null; line = in.readLine() ) {
+                String[] fields = line.split( " ", 3 );
+                long id = Long.parseLong( fields[1] );
+                if( fields[0].equals("SOLVE") ) {
+                    if( search != null )
+                        search.join();                  // The coordinator waits for each answer, so this is quick
+                    CancellationToken partToken = new CancellationToken();
+                    token = partToken;
+                    current = id;
+                    search = new Thread( () -> search( id, fields[2], partToken ), "worker-search-" + id );
+                    search.start();
+                } else if( fields[0].equals("CANCEL") && current == id ) {
+                    token.cancel();
+                }
+            }
+        } catch( IOException ex ) {
+            // The coordinator has gone
+        } catch( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+        } finally {
+            CancellationToken last = token;
+            if( last != null )                          // Nobody is left to answer
+                last.cancel();
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch( IOException ex ) {
+            // Nothing more to do
+        }
+    }
+
+    // Search subproblem id, given as a board in the format of PuzzleFormat, and answer the coordinator
+    private void search( long id, String board, CancellationToken partToken ) {
+        String reply;
+        try {
+            int[][] entries = PuzzleFormat.parse( board );
+            if( solver == null )
+                solver = new Solver( entries );
+            else
+                solver.reset( entries );
+            SolveOutcome outcome = solver.solve( null, SolveLimits.NONE.withToken( partToken ) );
+            if( outcome == SolveOutcome.SOLVED )
+                reply = "SOLVED " + id + " " + PuzzleFormat.format( entries );
+            else if( outcome == SolveOutcome.INVALID )
+                reply = "EXHAUSTED " + id;
+            else
+                reply = "CANCELLED " + id;
+        } catch( RuntimeException ex ) {                // Not a board this worker can search: say so and carry on
+            reply = "FAILED " + id;
+            solver = null;                              // Its state may be half reset
+        }
+        current = -1;
+        try {
+            out.write( reply );
+            out.write( '\n' );
+            out.flush();
+        } catch( IOException ex ) {
+            close();                                    // The reading thread sees the connection gone
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package sudokusolver;
+
+/**
+ * The deduction rules Solver can apply once known entries have been propagated. The rules are
+ * applied in a configurable order (see Solver.setRules), each only once the rules before it make
+ * no progress, so cheap rules do most of the work and costly ones only run when they are needed.
+ */
+public enum Rule {
+    /** A number confined to one row (or column) within a block is removed from the rest of that row */
+    POINTING( "pointing", false ) {
+        @Override
+        void apply( Solver solver ) {
+            solver.updatePointing();
+        }
+    },
+
+    /** A number confined to one block within a row (or column) is removed from the rest of that block */
+    BOX_LINE( "boxLine", false ) {
+        @Override
+        void apply( Solver solver ) {
+            solver.updateBoxLine();
+        }
+    },
+
+    /** Two rows (or columns) holding a number only in the same two columns rule it out of the rest of those columns */
+    X_WING( "xWing", false ) {
+        @Override
+        void apply( Solver solver ) {
+            solver.updateFish( this, 2 );
+        }
+    },
+
+    /** Like X_WING for three rows and columns */
+    SWORDFISH( "swordfish", false ) {
+        @Override
+        void apply( Solver solver ) {
+            solver.updateFish( this, 3 );
+        }
+    },
+
+    /** Like X_WING for four rows and columns */
+    JELLYFISH( "jellyfish", false ) {
+        @Override
+        void apply( Solver solver ) {
+            solver.updateFish( this, 4 );
+        }
+    },
+
+    /** m entries of a unit whose candidates are m numbers rule those numbers out of the rest of the unit */
+    NAKED_SUBSETS( "nakedSubsets", true ) {
+        @Override
+        void apply( Solver solver ) {
+            solver.updateNakedSubsets();
+        }
+    },
+
+    /** m numbers which fit in only m entries of a unit rule every other number out of those entries */
+    HIDDEN_SUBSETS( "hiddenSubsets", true ) {
+        @Override
+        void apply( Solver solver ) {
+            solver.updateHiddenSubsets();
+        }
+    };
+
+    private final String label;
+    private final boolean byUnit;
+
+    Rule( String label, boolean byUnit ) {
+        this.label = label;
+        this.byUnit = byUnit;
+    }
+
+    // Name used in stats and on the command line
+    public String label() {
+        return label;
+    }
+
+    // True if the rule tracks changes per row, column and block rather than per number
+    boolean byUnit() {
+        return byUnit;
+    }
+
+    // Returns the rule with the given label, or null if there is none
+    public static Rule forLabel( String label ) {
+        for( Rule rule : values() )
+            if( rule.label.equals( label ) )
+                return rule;
+        return null;
+    }
+
+    abstract void apply( Solver solver );
+}
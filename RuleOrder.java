@@ -0,0 +1,18 @@
+package sudokusolver;
+
+/**
+ * The order in which Solver applies its rules when propagation alone stalls (see
+ * Solver.setRuleOrder). Either way a rule runs only once those before it have made no progress,
+ * and only over the numbers or units that changed since it last ran, so the order changes how
+ * much work is done but not what is deduced.
+ */
+public enum RuleOrder {
+    /** The order given to setRules */
+    FIXED,
+
+    /**
+     * The rules which have cost the least time per candidate removed first, as measured by the
+     * solver over the puzzles it has solved so far, recent ones counting most
+     */
+    ADAPTIVE
+}
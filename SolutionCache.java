@@ -0,0 +1,277 @@
+package sudokusolver;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A bounded cache of solutions in front of an Engine, keyed by the canonical form of the puzzle
+ * (see CanonicalForm), so that symmetric copies of a puzzle solved before are answered by
+ * mapping the cached solution back through the symmetry. Invalid puzzles are cached too. The
+ * cache is split into segments, each locked on its own, so it can be shared by many threads;
+ * each segment evicts by the chosen policy once full. Puzzles whose canonical form is too
+ * costly to find bypass the cache.
+ */
+public class SolutionCache implements SolutionCacheMXBean {
+    private static final int SEGMENTS = 16;
+    private static final int[] INVALID = new int[0];    // Cached in place of a solution for invalid puzzles
+
+    /** Which entry a full segment evicts */
+    public enum Policy {
+        /** The least recently used */
+        LRU,
+        /** The least frequently used, the least recently added among those used equally */
+        LFU
+    }
+
+    private final int capacity;
+    private final Policy policy;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    public SolutionCache( int capacity, Policy policy ) {
+        if( capacity < 1 )
+            throw new IllegalArgumentException( "capacity must be positive" );
+        this.capacity = capacity;
+        this.policy = policy;
+        segments = new Segment[Math.min( SEGMENTS, capacity )];
+        for( int s = 0; s < segments.length; s++ ) {
+            int size = capacity / segments.length + (s < capacity % segments.length ? 1 : 0);
+            segments[s] = policy == Policy.LRU ? new LruSegment( size ) : new LfuSegment( size );
+        }
+    }
+
+    // Solves board in place with the rule-based Solver, using the cache
+    public boolean solve( int[][] board ) {
+        return solve( board, Engine.RULES, null );
+    }
+
+    /**
+     * Solves board in place like engine.solve(board, stats), unless a symmetric copy of it is
+     * in the cache. Returns true if board was solved, false if it was invalid.
+     */
+    public boolean solve( int[][] board, Engine engine, SolveStats stats ) {
+        CanonicalForm form = CanonicalForm.of( board );
+        if( form == null ) {
+            bypasses.increment();
+            return engine.solve( board, stats );
+        }
+
+        Key key = new Key( form.sharedKey() );
+        Segment segment = segments[Math.floorMod( key.hash, segments.length )];
+        int[] cached;
+        synchronized( segment ) {
+            cached = segment.get( key );
+        }
+        if( cached != null ) {
+            hits.increment();
+            if( cached == INVALID )
+                return false;
+            form.fromCanonical( cached, board );
+            return true;
+        }
+
+        misses.increment();
+        boolean solved = engine.solve( board, stats );
+        int[] solution = solved ? form.toCanonical( board ) : INVALID;
+        synchronized( segment ) {
+            if( segment.put( key, solution ) )
+                evictions.increment();
+        }
+        return solved;
+    }
+
+    // Registers this as an MXBean named sudokusolver:type=SolutionCache,name=<name>
+    public void registerMBean( String name ) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean( this,
+                new ObjectName( "sudokusolver:type=SolutionCache,name=" + ObjectName.quote(name) ) );
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getBypasses() {
+        return bypasses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long h = hits.sum();
+        long lookups = h + misses.sum() + bypasses.sum();
+        return lookups == 0 ? 0 : (double) h / lookups;
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for( Segment segment : segments ) {
+            synchronized( segment ) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public String getPolicy() {
+        return policy.name();
+    }
+
+    @Override
+    public String toString() {
+        return String.format( "cache %s %d/%d, %d hits, %d misses, %d bypasses, %d evictions, hit rate %.1f%%",
+                policy, getSize(), capacity, getHits(), getMisses(), getBypasses(), getEvictions(), 100 * getHitRate() );
+    }
+
+    // A canonical board, compared by value
+    private static final class Key {
+        final int[] board;
+        final int hash;
+
+        Key( int[] board ) {
+            this.board = board;
+            hash = Arrays.hashCode( board );
+        }
+
+        @Override
+        public boolean equals( Object other ) {
+            return other instanceof Key && ((Key) other).hash == hash && Arrays.equals( ((Key) other).board, board );
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // One part of the cache. Callers hold its lock.
+    private interface Segment {
+        // The cached solution for key, or null if there is none
+        int[] get( Key key );
+
+        // Caches solution for key. Returns true if another entry was evicted to make room.
+        boolean put( Key key, int[] solution );
+
+        int size();
+    }
+
+    private static final class LruSegment implements Segment {
+        private final int capacity;
+        private final LinkedHashMap<Key, int[]> map = new LinkedHashMap<>( 16, 0.75f, true );    // In access order
+
+        LruSegment( int capacity ) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public int[] get( Key key ) {
+            return map.get( key );
+        }
+
+        @Override
+        public boolean put( Key key, int[] solution ) {
+            if( map.put( key, solution ) != null || map.size() <= capacity )
+                return false;
+            Key eldest = map.keySet().iterator().next();
+            map.remove( eldest );
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+    }
+
+    // Entries are kept in a set per use count, so the least used one is found directly
+    private static final class LfuSegment implements Segment {
+        private final int capacity;
+        private final Map<Key, int[]> values = new HashMap<>();
+        private final Map<Key, Integer> uses = new HashMap<>();
+        private final Map<Integer, LinkedHashSet<Key>> byUses = new HashMap<>();    // Each set in the order keys reached that count
+        private int minUses;
+
+        LfuSegment( int capacity ) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public int[] get( Key key ) {
+            int[] value = values.get( key );
+            if( value != null )
+                use( key );
+            return value;
+        }
+
+        @Override
+        public boolean put( Key key, int[] solution ) {
+            if( values.containsKey( key ) ) {
+                values.put( key, solution );
+                use( key );
+                return false;
+            }
+            boolean evicted = false;
+            if( values.size() >= capacity ) {
+                LinkedHashSet<Key> least = byUses.get( minUses );
+                Key victim = least.iterator().next();
+                least.remove( victim );
+                if( least.isEmpty() )
+                    byUses.remove( minUses );
+                values.remove( victim );
+                uses.remove( victim );
+                evicted = true;
+            }
+            values.put( key, solution );
+            uses.put( key, 1 );
+            byUses.computeIfAbsent( 1, u -> new LinkedHashSet<>() ).add( key );
+            minUses = 1;
+            return evicted;
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        // Move key up to the set of the next use count
+        private void use( Key key ) {
+            int count = uses.get( key );
+            LinkedHashSet<Key> set = byUses.get( count );
+            set.remove( key );
+            if( set.isEmpty() ) {
+                byUses.remove( count );
+                if( minUses == count )
+                    minUses = count + 1;
+            }
+            uses.put( key, count + 1 );
+            byUses.computeIfAbsent( count + 1, u -> new LinkedHashSet<>() ).add( key );
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package sudokusolver;
+
+/**
+ * The metrics of SolutionCache, as exported over JMX.
+ */
+public interface SolutionCacheMXBean {
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    // Puzzles solved without the cache because their canonical form was too costly to find
+    long getBypasses();
+
+    // Hits as a fraction of all puzzles solved through the cache
+    double getHitRate();
+
+    int getSize();
+
+    int getCapacity();
+
+    String getPolicy();
+}
@@ -0,0 +1,366 @@
+package sudokusolver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Solves puzzles too big for one process by sharing out their search among worker processes
+ * (see RemoteWorker), on this machine or others. Each puzzle is split into subproblems (see
+ * Solver.split), which wait in one queue; every connected worker takes the next one as soon as
+ * it is free, so fast workers take more of them. The first solution found ends the puzzle: its
+ * remaining subproblems are dropped and the workers still searching them are told to stop. A
+ * worker which disconnects has its subproblem put back for the others, while one which fails on
+ * a subproblem, or answers with a board that does not solve the puzzle, stays connected and the
+ * subproblem is not tried again, so a puzzle left without a solution that way gives up rather
+ * than being called invalid. Workers connect over
+ * TCP and speak a line protocol, with boards written as in PuzzleFormat:
+ *     SOLVE <id> <board>     coordinator to worker: search subproblem id
+ *     CANCEL <id>            coordinator to worker: stop searching subproblem id
+ *     SOLVED <id> <board>    worker to coordinator: the solution of subproblem id
+ *     EXHAUSTED <id>         worker to coordinator: subproblem id has no solution
+ *     CANCELLED <id>         worker to coordinator: gave up subproblem id when told to
+ *     FAILED <id>            worker to coordinator: could not search subproblem id
+ * A worker is sent one subproblem at a time and answers each once.
+ */
+public class SolveCoordinator implements AutoCloseable {
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final int parts;
+    private final LinkedBlockingDeque<Part> queue = new LinkedBlockingDeque<>();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();    // Also the lock awaitWorkers waits on
+    private final AtomicLong nextId = new AtomicLong();
+
+    // One puzzle being solved
+    private static final class Job {
+        final int[][] puzzle;                           // A copy of the board, to check solutions against
+        private int remaining;                          // Subproblems neither exhausted nor dropped
+        private int[][] solution;
+        private boolean done;
+        private boolean incomplete;                     // True once some subproblem could not be searched
+        final CountDownLatch finished = new CountDownLatch( 1 );
+
+        Job( int[][] puzzle, int remaining ) {
+            this.puzzle = puzzle;
+            this.remaining = remaining;
+        }
+
+        synchronized boolean isDone() {
+            return done;
+        }
+
+        synchronized int[][] solution() {
+            return solution;
+        }
+
+        // Records solution. Returns true if it is the first, so the job has just finished.
+        synchronized boolean solved( int[][] solution ) {
+            if( done )
+                return false;
+            this.solution = solution;
+            return finish();
+        }
+
+        // Records a subproblem with no solution. Returns true if it was the last, so the job has just finished.
+        synchronized boolean exhausted() {
+            return !done && --remaining == 0 && finish();
+        }
+
+        // Records a subproblem which could not be searched. Returns true if it was the last, so the job has just finished.
+        synchronized boolean failed() {
+            if( done )
+                return false;
+            incomplete = true;
+            return --remaining == 0 && finish();
+        }
+
+        synchronized boolean isIncomplete() {
+            return incomplete;
+        }
+
+        // Gives up the job. Returns true unless it had already finished.
+        synchronized boolean giveUp() {
+            return !done && finish();
+        }
+
+        private boolean finish() {
+            done = true;
+            finished.countDown();
+            return true;
+        }
+    }
+
+    // A subproblem of a job, waiting for a worker or being searched by one
+    private static final class Part {
+        final long id;
+        final Job job;
+        final String board;                             // In the format of PuzzleFormat
+
+        Part( long id, Job job, String board ) {
+            this.id = id;
+            this.job = job;
+            this.board = board;
+        }
+    }
+
+    /**
+     * Creates a coordinator listening on port (0 for any free port), splitting each puzzle into
+     * at least parts subproblems where the search tree allows. Call start() to let workers in.
+     */
+    public SolveCoordinator( int port, int parts ) throws IOException {
+        if( parts < 1 )
+            throw new IllegalArgumentException( "parts must be positive" );
+        this.parts = parts;
+        server = new ServerSocket( port );
+        acceptor = new Thread( this::accept, "coordinator-acceptor" );
+        acceptor.setDaemon( true );
+    }
+
+    public void start() {
+        acceptor.start();
+    }
+
+    // The port the coordinator listens on
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Number of workers connected
+    public int getWorkers() {
+        return connections.size();
+    }
+
+    // Waits until at least count workers are connected
+    public void awaitWorkers( int count ) throws InterruptedException {
+        synchronized( connections ) {
+            while( connections.size() < count )
+                connections.wait();
+        }
+    }
+
+    /**
+     * Solves board in place with the connected workers, giving up once timeout has passed. The
+     * timeout includes waiting for workers to be free, or to connect at all.
+     */
+    public SolveOutcome solve( int[][] board, long timeout, TimeUnit unit ) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+        List<int[][]> boards = new Solver( board ).split( parts );
+        if( boards.isEmpty() )
+            return SolveOutcome.INVALID;
+        if( boards.size() == 1 && isFull( boards.get(0) ) ) {     // Solved while splitting
+            copy( boards.get(0), board );
+            return SolveOutcome.SOLVED;
+        }
+
+        int[][] puzzle = new int[board.length][board.length];
+        copy( board, puzzle );
+        Job job = new Job( puzzle, boards.size() );
+        for( int[][] part : boards )
+            queue.add( new Part( nextId.getAndIncrement(), job, PuzzleFormat.format( part ) ) );
+        try {
+            if( !job.finished.await( deadline - System.nanoTime(), TimeUnit.NANOSECONDS ) && job.giveUp() ) {
+                drop( job );
+                return SolveOutcome.GAVE_UP;
+            }
+        } catch( InterruptedException ex ) {
+            if( job.giveUp() )
+                drop( job );
+            throw ex;
+        }
+
+        int[][] solution = job.solution();
+        if( solution == null )
+            return job.isIncomplete() ? SolveOutcome.GAVE_UP : SolveOutcome.INVALID;
+        copy( solution, board );
+        return SolveOutcome.SOLVED;
+    }
+
+    // Closes the connections, which ends the workers' processes, and stops listening
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for( Connection connection : connections ) {
+            connection.thread.interrupt();              // In case it is waiting for a subproblem
+            connection.close();
+        }
+    }
+
+    // Remove the subproblems of a finished job from the queue, and stop the workers searching the others
+    private void drop( Job job ) {
+        queue.removeIf( part -> part.job == job );
+        for( Connection connection : connections ) {
+            Part part = connection.current;
+            if( part != null && part.job == job )
+                connection.cancel( part );
+        }
+    }
+
+    private void accept() {
+        try {
+            while( true ) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay( true );
+                Connection connection = new Connection( socket );
+                connection.thread.setDaemon( true );
+                synchronized( connections ) {
+                    connections.add( connection );
+                    connections.notifyAll();
+                }
+                connection.thread.start();
+            }
+        } catch( IOException ex ) {
+            // Closed
+        }
+    }
+
+    private static boolean isFull( int[][] board ) {
+        for( int[] row : board )
+            for( int entry : row )
+                if( entry == -1 )
+                    return false;
+        return true;
+    }
+
+    // Returns true if solution is a full board keeping the entries of puzzle, with each number once in every unit
+    private static boolean solves( int[][] solution, int[][] puzzle ) {
+        int n2 = puzzle.length;
+        int n = (int) Math.sqrt( n2 );
+        if( solution.length != n2 )
+            return false;
+        for( int u = 0; u < n2; u++ ) {
+            boolean[] inRow = new boolean[n2 + 1];
+            boolean[] inCol = new boolean[n2 + 1];
+            boolean[] inBlock = new boolean[n2 + 1];
+            for( int t = 0; t < n2; t++ ) {
+                int r = solution[u][t];
+                int c = solution[t][u];
+                int b = solution[(u / n) * n + t / n][(u % n) * n + t % n];
+                if( r < 1 || r > n2 || c < 1 || c > n2 || b < 1 || b > n2 || inRow[r] || inCol[c] || inBlock[b] )
+                    return false;
+                if( puzzle[u][t] != -1 && puzzle[u][t] != r )
+                    return false;
+                inRow[r] = inCol[c] = inBlock[b] = true;
+            }
+        }
+        return true;
+    }
+
+    private static void copy( int[][] from, int[][] to ) {
+        for( int i = 0; i < from.length; i++ )
+            System.arraycopy( from[i], 0, to[i], 0, from.length );
+    }
+
+    // One connected worker, fed subproblems by its own thread
+    private final class Connection implements Runnable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;                       // Written by this connection's thread and by drop(), under its lock
+        final Thread thread;
+        volatile Part current;                          // The subproblem the worker is searching, null when it is free
+
+        Connection( Socket socket ) throws IOException {
+            this.socket = socket;
+            in = new BufferedReader( new InputStreamReader( socket.getInputStream(), StandardCharsets.UTF_8 ) );
+            out = new BufferedWriter( new OutputStreamWriter( socket.getOutputStream(), StandardCharsets.UTF_8 ) );
+            thread = new Thread( this, "coordinator-" + socket.getRemoteSocketAddress() );
+        }
+
+        @Override
+        public void run() {
+            try {
+                while( true ) {
+                    Part part = queue.take();
+                    if( part.job.isDone() )
+                        continue;
+                    current = part;
+                    send( "SOLVE " + part.id + " " + part.board );
+                    if( part.job.isDone() )             // Finished before current was set, so drop() missed it
+                        cancel( part );
+                    answer( part, in.readLine() );
+                    current = null;
+                }
+            } catch( IOException ex ) {                 // The worker is gone: put back what it was searching
+                Part part = current;
+                if( part != null && !part.job.isDone() )
+                    queue.addFirst( part );
+            } catch( InterruptedException ex ) {
+                // Closed
+            } finally {
+                connections.remove( this );
+                close();
+            }
+        }
+
+        // Act on the worker's reply about part
+        private void answer( Part part, String reply ) throws IOException {
+            if( reply == null )
+                throw new EOFException( "Worker disconnected" );
+            String[] fields = reply.split( " ", 3 );
+            if( fields.length < 2 || !fields[1].equals( Long.toString( part.id ) ) )
+                throw new IOException( "Unexpected reply " + reply );
+            switch( fields[0] ) {
+                case "SOLVED":
+                    int[][] solution;
+                    try {
+                        solution = PuzzleFormat.parse( fields.length == 3 ? fields[2] : "" );
+                    } catch( IllegalArgumentException ex ) {
+                        solution = null;
+                    }
+                    if( solution == null || !solves( solution, part.job.puzzle ) ) {    // Not to be trusted, like FAILED
+                        part.job.failed();
+                    } else if( part.job.solved( solution ) ) {
+                        current = null;                 // Answered already, so drop() must not cancel it
+                        drop( part.job );
+                    }
+                    break;
+                case "EXHAUSTED":
+                    part.job.exhausted();
+                    break;
+                case "FAILED":
+                    part.job.failed();
+                    break;
+                case "CANCELLED":
+                    break;
+                default:
+                    throw new IOException( "Unexpected reply " + reply );
+            }
+        }
+
+        void cancel( Part part ) {
+            try {
+                send( "CANCEL " + part.id );
+            } catch( IOException ex ) {
+                close();                                // The connection's thread puts the subproblem back
+            }
+        }
+
+        private void send( String line ) throws IOException {
+            synchronized( out ) {
+                out.write( line );
+                out.write( '\n' );
+                out.flush();
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch( IOException ex ) {
+                // Nothing more to do
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package sudokusolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on a solve, after which Solver.solve(SolveStats, SolveLimits) gives up: a deadline, a
+ * budget of search nodes and a CancellationToken. Limits are immutable; start from NONE and add
+ * to it, e.g. SolveLimits.NONE.withTimeout(50, TimeUnit.MILLISECONDS).withMaxNodes(100_000).
+ */
+public final class SolveLimits {
+    /** No limits at all */
+    public static final SolveLimits NONE = new SolveLimits( false, 0, 0, null );
+
+    private final boolean timed;           // True if there is a deadline
+    private final long deadline;           // Value of System.nanoTime() at which to give up
+    private final long maxNodes;           // Search nodes allowed, 0 for no limit
+    private final CancellationToken token; // Null if there is none
+
+    private SolveLimits( boolean timed, long deadline, long maxNodes, CancellationToken token ) {
+        this.timed = timed;
+        this.deadline = deadline;
+        this.maxNodes = maxNodes;
+        this.token = token;
+    }
+
+    // These limits, giving up once System.nanoTime() reaches deadline
+    public SolveLimits withDeadline( long deadline ) {
+        return new SolveLimits( true, deadline, maxNodes, token );
+    }
+
+    // These limits, giving up once timeout has passed from now
+    public SolveLimits withTimeout( long timeout, TimeUnit unit ) {
+        return withDeadline( System.nanoTime() + unit.toNanos( timeout ) );
+    }
+
+    // These limits, giving up after maxNodes search nodes (0 for no limit)
+    public SolveLimits withMaxNodes( long maxNodes ) {
+        if( maxNodes < 0 )
+            throw new IllegalArgumentException( "maxNodes must not be negative" );
+        return new SolveLimits( timed, deadline, maxNodes, token );
+    }
+
+    // These limits, giving up once token is cancelled
+    public SolveLimits withToken( CancellationToken token ) {
+        return new SolveLimits( timed, deadline, maxNodes, token );
+    }
+
+    public boolean hasDeadline() {
+        return timed;
+    }
+
+    public long deadline() {
+        return deadline;
+    }
+
+    public long maxNodes() {
+        return maxNodes;
+    }
+
+    public CancellationToken token() {
+        return token;
+    }
+}
@@ -3,6 +3,8 @@ package sudokusolver;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 
 
@@ -12,23 +14,35 @@ public class SolveListener implements ActionListener {
     private JLabel output;
     private JButton solve;
     private JButton reset;
+    private JButton cancel;
+    private SolveWorker worker;     // The solve running in the background, null if there is none
     private boolean[][] filled; // filled[i][j] stores true if board[i][j] was filled initially.
                                 // Used to show which fields where filled initially when solved board is displayed
     private final int n;    // Block size of sudoku (standard sudoku has n = 3)
     private final int n2;   // Side length of sudoku, equal to n^2;
     
-    public SolveListener( JTextField[][] board, JLabel output, JButton solve, JButton reset ) {
+    public SolveListener( JTextField[][] board, JLabel output, JButton solve, JButton reset, JButton cancel ) {
         this.board = board;
         this.output = output;
         this.solve = solve;
         this.reset = reset;
+        this.cancel = cancel;
+        cancel.setEnabled(false);
         n2 = board.length;
         n = (int) Math.sqrt(n2);
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        if( e.getSource().equals(reset) ) {     // If reset was clicked, set all text fields and label to ""
+        if( e.getSource().equals(cancel) ) {    // If cancel was clicked, stop the search; the worker reports it when done
+            if( worker != null )
+                worker.solver.cancel();
+        } else if( e.getSource().equals(reset) ) {     // If reset was clicked, stop any search and set all text fields and label to ""
+            if( worker != null ) {
+                worker.solver.cancel();
+                worker = null;
+            }
+            cancel.setEnabled(false);
             for( int i = 0; i < n2; i++ ) {
                 for ( int j = 0; j < n2; j++ ) {
                     board[i][j].setText("");
@@ -38,16 +52,14 @@ public class SolveListener implements ActionListener {
             }
         } else {                                // If solve was clicked, store board and run solver
             filled = new boolean[n2][n2];
-            int[][] intBoard = new int[n2][n2];
+            Board puzzle = new Board( n2 );             // Blank until entries are set
             for( int i = 0; i < n2; i++ ) {
                 for ( int j = 0; j < n2; j++ ) {
                     String entry = board[i][j].getText();
-                    if( entry.isEmpty() )
-                        intBoard[i][j] = -1;
-                    else {
+                    if( !entry.isEmpty() ) {
                         int num = validEntry(entry);
                         if ( num != -1 ) {   // Check if string is one of "1",...,"n2"
-                            intBoard[i][j] = num;
+                            puzzle.set( i, j, num );
                             filled[i][j] = true;
                         }
                         else {
@@ -59,18 +71,70 @@ public class SolveListener implements ActionListener {
                     }
                 }
             }
-            Solver solver = new Solver( intBoard );
-            boolean b = solver.solve();                 // Attempt to solve board
-            if( b ) {                                   // If solved, write solved board in text fields
-                for( int i = 0; i < n2; i++ )
-                    for ( int j = 0; j < n2; j++ ) 
-                        board[i][j].setText( "" + solver.getBoard()[i][j] );
-                
-                output.setText("Solved!");
-            } else {                                    // If board invalid, say so
-                output.setText("Invalid board");
-            }
-            disableAll();
+            disableAll();                               // Solve on a worker thread, so the window stays responsive
+            output.setText("Solving...");
+            cancel.setEnabled(true);
+            worker = new SolveWorker( puzzle );
+            worker.execute();
+        }
+    }
+    
+    // Show the result of a finished solve, unless it was abandoned by reset
+    private void finished( SolveWorker w ) {
+        if( w != worker )
+            return;
+        worker = null;
+        cancel.setEnabled(false);
+        boolean b;
+        try {
+            b = w.get();
+        } catch( InterruptedException | ExecutionException ex ) {
+            output.setText("Error: " + ex.getCause());
+            return;
+        }
+        if( b ) {                                       // If solved, write solved board in text fields
+            for( int i = 0; i < n2; i++ )
+                for ( int j = 0; j < n2; j++ ) 
+                    board[i][j].setText( "" + w.puzzle.get( i, j ) );
+            
+            output.setText("Solved!");
+        } else if( w.solver.isCancelled() ) {
+            output.setText("Cancelled");
+        } else {                                        // If board invalid, say so
+            output.setText("Invalid board");
+        }
+    }
+    
+    /**
+     * Runs a Solver off the event dispatch thread, passing its progress (search nodes and depth)
+     * back to the output label.
+     */
+    private class SolveWorker extends SwingWorker<Boolean, long[]> {
+        final Board puzzle;     // Solved in place
+        final Solver solver;
+        
+        SolveWorker( Board puzzle ) {
+            this.puzzle = puzzle;
+            solver = new Solver( puzzle );
+        }
+        
+        @Override
+        protected Boolean doInBackground() {
+            solver.setProgress( (nodes, depth) -> publish( new long[] { nodes, depth } ) );
+            return solver.solve();
+        }
+        
+        @Override
+        protected void process( List<long[]> chunks ) {
+            if( this != worker || solver.isCancelled() )
+                return;
+            long[] last = chunks.get( chunks.size() - 1 );
+            output.setText( "Solving... " + last[0] + " search nodes, depth " + last[1] );
+        }
+        
+        @Override
+        protected void done() {
+            finished( this );
         }
     }
     
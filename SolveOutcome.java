@@ -0,0 +1,13 @@
+package sudokusolver;
+
+/**
+ * How a solve with limits ended, see Solver.solve(SolveStats, SolveLimits).
+ */
+public enum SolveOutcome {
+    /** The board was solved in place */
+    SOLVED,
+    /** The board has no solution */
+    INVALID,
+    /** A limit was reached first, so nothing is known about the board */
+    GAVE_UP
+}
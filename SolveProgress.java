@@ -0,0 +1,12 @@
+package sudokusolver;
+
+/**
+ * Receives progress reports from a running search (see Solver.setProgress). Reports come from
+ * the solving thread (any thread of the pool for solveParallel, possibly several at once), so
+ * they must be handed on rather than touching the GUI directly.
+ */
+public interface SolveProgress {
+
+    // Called every Solver.PROGRESS_INTERVAL search nodes with the nodes tried so far and the current depth
+    void update( long searchNodes, int depth );
+}
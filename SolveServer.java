@@ -0,0 +1,571 @@
+package sudokusolver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A headless HTTP service for solving puzzles, built on the JDK's com.sun.net.httpserver:
+ *     POST /solve    a body of puzzles one per line (see PuzzleFormat), answered with one line per
+ *                    puzzle: the solution, "invalid" or "timeout". A JSON body (Content-Type
+ *                    application/json) holds {"puzzles": [...]}, {"puzzle": "..."} or an array,
+ *                    and is answered with {"results": [{"status": ..., "solution": ...}, ...]}.
+ *     GET /metrics   throughput, latency percentiles and counters, one "name value" per line
+ * The puzzles of every request go into one bounded queue, which a fixed number of workers drain
+ * a micro-batch at a time, so a burst of small requests costs one hand-off per batch rather than
+ * per puzzle. A request whose puzzles do not fit in the queue is refused with 503 (backpressure),
+ * and each puzzle gives up (see SolveLimits) once the timeout has passed since its request came.
+ * Bodies over 1 MiB, or with more puzzles than the queue holds, are refused with 413, and puzzles
+ * larger than 64x64 with 400. At most 64 requests are handled at once; further connections wait,
+ * unread, for a handler to come free, and so do requests for /metrics.
+ * The metrics are also exported as the MXBean sudokusolver:type=SolveServer.
+ */
+public class SolveServer implements SolveServerMXBean, AutoCloseable {
+    private static final int LATENCY_WINDOW = 8192;    // Latencies kept for the percentiles
+    private static final int MAX_BODY_BYTES = 1 << 20;  // Larger requests are refused with 413
+    private static final int MAX_BLOCK_SIZE = 8;        // Puzzles with larger blocks, beyond 64x64, are refused with 400
+    private static final int HANDLER_THREADS = 64;      // Requests read and waited on at once
+    private static final long ANSWER_GRACE = TimeUnit.SECONDS.toNanos( 1 );    // Wait past the timeout for workers, which check the clock only now and then
+
+    private final HttpServer http;
+    private final ExecutorService handlers;             // Threads reading requests and waiting on their puzzles
+    private final Thread[] workers;
+    private final ArrayBlockingQueue<Job> queue;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long timeout;                         // Nanoseconds each puzzle may take, queueing included
+    private final long started = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final long[] latencies = new long[LATENCY_WINDOW];    // The latest latencies in nanoseconds, as a ring
+    private long latencyCount;                          // Latencies recorded so far, guarded by latencies
+
+    // A puzzle waiting to be solved
+    private static final class Job {
+        final int[][] board;
+        final long arrived;                             // Value of System.nanoTime() when its request came
+        final CancellationToken token;                  // Shared by the puzzles of one request
+        final CountDownLatch done;                      // Likewise, counted down as each is finished
+        volatile boolean refused;                       // Set if its request was refused after it was queued
+        volatile SolveOutcome outcome;                  // Null until a worker has finished with it
+
+        Job( int[][] board, long arrived, CancellationToken token, CountDownLatch done ) {
+            this.board = board;
+            this.arrived = arrived;
+            this.token = token;
+            this.done = done;
+        }
+    }
+
+    /**
+     * Creates a server on port (0 for any free port) with threads workers, room for queueCapacity
+     * puzzles waiting, at most batchSize puzzles taken by a worker at a time, and the given
+     * timeout per puzzle. Call start() to begin serving.
+     */
+    public SolveServer( int port, int threads, int queueCapacity, int batchSize, long timeout, TimeUnit unit )
+            throws IOException {
+        if( threads < 1 || queueCapacity < 1 || batchSize < 1 )
+            throw new IllegalArgumentException( "threads, queue capacity and batch size must be positive" );
+        this.batchSize = batchSize;
+        this.timeout = unit.toNanos( timeout );
+        this.queueCapacity = queueCapacity;
+        queue = new ArrayBlockingQueue<>( queueCapacity );
+        workers = new Thread[threads];
+        for( int t = 0; t < threads; t++ ) {
+            workers[t] = new Thread( this::work, "solve-worker-" + t );
+            workers[t].setDaemon( true );
+        }
+        handlers = Executors.newFixedThreadPool( HANDLER_THREADS );
+        http = HttpServer.create( new InetSocketAddress( port ), 0 );
+        http.setExecutor( handlers );
+        http.createContext( "/solve", this::handleSolve );
+        http.createContext( "/metrics", this::handleMetrics );
+    }
+
+    public void start() {
+        for( Thread worker : workers )
+            worker.start();
+        http.start();
+    }
+
+    // The port the server listens on
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    // Registers this as an MXBean named sudokusolver:type=SolveServer,name=<name>
+    public void registerMBean( String name ) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean( this,
+                new ObjectName( "sudokusolver:type=SolveServer,name=" + ObjectName.quote(name) ) );
+    }
+
+    @Override
+    public void close() {
+        http.stop( 0 );
+        for( Thread worker : workers )
+            worker.interrupt();
+        handlers.shutdownNow();
+    }
+
+    // Body of each worker: take a batch of jobs off the queue and solve them in turn
+    private void work() {
+        List<Job> batch = new ArrayList<>( batchSize );
+        Solver solver = null;                           // Reset for each puzzle rather than allocated again
+        try {
+            while( true ) {
+                batch.add( queue.take() );
+                queue.drainTo( batch, batchSize - 1 );
+                batches.increment();
+                for( Job job : batch )
+                    solver = solve( job, solver );
+                batch.clear();
+            }
+        } catch( InterruptedException ex ) {
+            // Closed, requests still waiting are interrupted by close()
+        }
+    }
+
+    // Solve the puzzle of job with solver, or a new one if it is null. Returns the solver to use next.
+    private Solver solve( Job job, Solver solver ) {
+        try {
+            if( job.refused )                           // Nobody is waiting for it, and it does not count in the metrics
+                return solver;
+            long deadline = job.arrived + timeout;
+            SolveOutcome outcome;
+            if( job.token.isCancelled() || System.nanoTime() - deadline >= 0 ) {
+                outcome = SolveOutcome.GAVE_UP;
+            } else {
+                try {
+                    if( solver == null )
+                        solver = new Solver( job.board );
+                    else
+                        solver.reset( job.board );
+                    outcome = solver.solve( null, SolveLimits.NONE.withDeadline( deadline ).withToken( job.token ) );
+                } catch( RuntimeException | OutOfMemoryError | StackOverflowError ex ) {
+                    outcome = SolveOutcome.INVALID;     // Keep the worker alive whatever the puzzle, with a fresh solver
+                    solver = null;
+                }
+            }
+            job.outcome = outcome;
+            if( job.refused )                           // Refused while it was being solved
+                return solver;
+            switch( outcome ) {
+                case SOLVED:
+                    solved.increment();
+                    break;
+                case INVALID:
+                    invalid.increment();
+                    break;
+                default:
+                    timeouts.increment();
+            }
+            recordLatency( System.nanoTime() - job.arrived );
+            return solver;
+        } finally {
+            job.done.countDown();                       // Whatever happened, the request must not wait for it forever
+        }
+    }
+
+    private void handleSolve( HttpExchange exchange ) throws IOException {
+        try {
+            long arrived = System.nanoTime();
+            requests.increment();
+            if( !exchange.getRequestMethod().equals("POST") ) {
+                respond( exchange, 405, "Use POST\n" );
+                return;
+            }
+            String type = exchange.getRequestHeaders().getFirst( "Content-Type" );
+            boolean json = type != null && type.startsWith( "application/json" );
+            byte[] bytes = exchange.getRequestBody().readNBytes( MAX_BODY_BYTES + 1 );
+            if( bytes.length > MAX_BODY_BYTES ) {
+                rejected.increment();
+                respond( exchange, 413, "At most " + MAX_BODY_BYTES + " bytes per request\n" );
+                return;
+            }
+            String body = new String( bytes, StandardCharsets.UTF_8 );
+
+            List<int[][]> boards = new ArrayList<>();
+            try {
+                for( String line : json ? puzzlesOf( Json.parse( body ) ) : Arrays.asList( body.split("\n") ) ) {
+                    line = line.trim();
+                    if( line.isEmpty() )
+                        continue;
+                    int[][] board = PuzzleFormat.parse( line );
+                    if( board.length > MAX_BLOCK_SIZE * MAX_BLOCK_SIZE )
+                        throw new IllegalArgumentException( "Puzzles larger than " + MAX_BLOCK_SIZE * MAX_BLOCK_SIZE + "x"
+                                + MAX_BLOCK_SIZE * MAX_BLOCK_SIZE + " are not served" );
+                    boards.add( board );
+                }
+            } catch( IllegalArgumentException ex ) {
+                respond( exchange, 400, ex.getMessage() + "\n" );
+                return;
+            }
+            if( boards.size() > queueCapacity ) {
+                rejected.increment();
+                respond( exchange, 413, "At most " + queueCapacity + " puzzles per request\n" );
+                return;
+            }
+
+            CancellationToken token = new CancellationToken();
+            CountDownLatch done = new CountDownLatch( boards.size() );
+            Job[] jobs = new Job[boards.size()];
+            for( int b = 0; b < jobs.length; b++ ) {
+                jobs[b] = new Job( boards.get(b), arrived, token, done );
+                if( !queue.offer( jobs[b] ) ) {         // Queue full: take back the jobs already queued and refuse
+                    for( int q = 0; q < b; q++ ) {
+                        jobs[q].refused = true;         // In case a worker has taken it already
+                        queue.remove( jobs[q] );
+                    }
+                    token.cancel();
+                    rejected.increment();
+                    exchange.getResponseHeaders().set( "Retry-After", "1" );
+                    respond( exchange, 503, "Too busy\n" );
+                    return;
+                }
+            }
+            try {
+                if( !done.await( arrived + timeout + ANSWER_GRACE - System.nanoTime(), TimeUnit.NANOSECONDS ) )
+                    token.cancel();                     // The puzzles not finished yet are answered as timeouts
+            } catch( InterruptedException ex ) {
+                token.cancel();
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            exchange.getResponseHeaders().set( "Content-Type", json ? "application/json" : "text/plain" );
+            respond( exchange, 200, json ? jsonResults( jobs ) : lineResults( jobs ) );
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleMetrics( HttpExchange exchange ) throws IOException {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for( Map.Entry<String, Object> metric : metrics().entrySet() )
+                sb.append( metric.getKey() ).append( ' ' ).append( metric.getValue() ).append( '\n' );
+            exchange.getResponseHeaders().set( "Content-Type", "text/plain" );
+            respond( exchange, 200, sb.toString() );
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Map<String, Object> metrics() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put( "requests", getRequests() );
+        map.put( "rejected", getRejected() );
+        map.put( "puzzles", getPuzzles() );
+        map.put( "solved", getSolved() );
+        map.put( "invalid", getInvalid() );
+        map.put( "timeouts", getTimeouts() );
+        map.put( "batches", getBatches() );
+        map.put( "queued", getQueued() );
+        map.put( "puzzles_per_second", String.format( "%.1f", getPuzzlesPerSecond() ) );
+        map.put( "latency_p50_us", getLatencyP50Micros() );
+        map.put( "latency_p99_us", getLatencyP99Micros() );
+        return map;
+    }
+
+    private static void respond( HttpExchange exchange, int status, String body ) throws IOException {
+        byte[] bytes = body.getBytes( StandardCharsets.UTF_8 );
+        exchange.sendResponseHeaders( status, bytes.length );
+        try( OutputStream out = exchange.getResponseBody() ) {
+            out.write( bytes );
+        }
+    }
+
+    // Word for an outcome in responses, null standing for a puzzle not finished in time
+    private static String status( SolveOutcome outcome ) {
+        return outcome == SolveOutcome.SOLVED ? "solved" : outcome == SolveOutcome.INVALID ? "invalid" : "timeout";
+    }
+
+    private static String lineResults( Job[] jobs ) {
+        StringBuilder sb = new StringBuilder();
+        for( Job job : jobs ) {
+            SolveOutcome outcome = job.outcome;         // Read once, a worker may still finish it
+            sb.append( outcome == SolveOutcome.SOLVED ? PuzzleFormat.format( job.board ) : status( outcome ) ).append( '\n' );
+        }
+        return sb.toString();
+    }
+
+    private static String jsonResults( Job[] jobs ) {
+        StringBuilder sb = new StringBuilder( "{\"results\":[" );
+        for( int b = 0; b < jobs.length; b++ ) {
+            SolveOutcome outcome = jobs[b].outcome;     // Read once, a worker may still finish it
+            if( b > 0 )
+                sb.append( ',' );
+            sb.append( "{\"status\":\"" ).append( status( outcome ) ).append( '"' );
+            if( outcome == SolveOutcome.SOLVED )
+                sb.append( ",\"solution\":\"" ).append( PuzzleFormat.format( jobs[b].board ) ).append( '"' );
+            sb.append( '}' );
+        }
+        return sb.append( "]}\n" ).toString();
+    }
+
+    // The puzzle lines of a parsed JSON request
+    private static List<String> puzzlesOf( Object request ) {
+        if( request instanceof Map ) {
+            Map<?, ?> map = (Map<?, ?>) request;
+            request = map.containsKey( "puzzles" ) ? map.get( "puzzles" ) : map.get( "puzzle" );
+        }
+        List<String> lines = new ArrayList<>();
+        if( request instanceof String ) {
+            lines.add( (String) request );
+        } else if( request instanceof List ) {
+            for( Object puzzle : (List<?>) request ) {
+                if( !(puzzle instanceof String) )
+                    throw new IllegalArgumentException( "Puzzles must be strings" );
+                lines.add( (String) puzzle );
+            }
+        } else {
+            throw new IllegalArgumentException( "Expected {\"puzzles\": [...]} or {\"puzzle\": \"...\"}" );
+        }
+        return lines;
+    }
+
+    private void recordLatency( long nanos ) {
+        synchronized( latencies ) {
+            latencies[(int) (latencyCount++ % LATENCY_WINDOW)] = nanos;
+        }
+    }
+
+    // Latency in microseconds below which the fraction p of the latest puzzles were finished
+    private long latencyPercentile( double p ) {
+        long[] sorted;
+        synchronized( latencies ) {
+            sorted = Arrays.copyOf( latencies, (int) Math.min( latencyCount, LATENCY_WINDOW ) );
+        }
+        if( sorted.length == 0 )
+            return 0;
+        Arrays.sort( sorted );
+        int index = (int) Math.ceil( p * sorted.length ) - 1;
+        return sorted[Math.max( 0, index )] / 1000;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getPuzzles() {
+        return solved.sum() + invalid.sum() + timeouts.sum();
+    }
+
+    @Override
+    public long getSolved() {
+        return solved.sum();
+    }
+
+    @Override
+    public long getInvalid() {
+        return invalid.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    @Override
+    public int getQueued() {
+        return queue.size();
+    }
+
+    @Override
+    public double getPuzzlesPerSecond() {
+        return getPuzzles() * 1e9 / (System.nanoTime() - started);
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return latencyPercentile( 0.5 );
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return latencyPercentile( 0.99 );
+    }
+
+    @Override
+    public String toString() {
+        return metrics().toString();
+    }
+
+    /**
+     * Just enough of a JSON parser for requests: objects become Maps, arrays Lists, strings
+     * Strings, numbers Doubles, and true, false and null themselves. Throws
+     * IllegalArgumentException on malformed input.
+     */
+    private static final class Json {
+        private final String s;
+        private int p;
+
+        private Json( String s ) {
+            this.s = s;
+        }
+
+        static Object parse( String s ) {
+            Json json = new Json( s );
+            Object value = json.value();
+            json.skipSpace();
+            if( json.p != s.length() )
+                throw json.error();
+            return value;
+        }
+
+        private Object value() {
+            skipSpace();
+            if( p >= s.length() )
+                throw error();
+            char c = s.charAt( p );
+            if( c == '{' ) {
+                p++;
+                Map<String, Object> map = new LinkedHashMap<>();
+                if( !consume( '}' ) ) {
+                    do {
+                        skipSpace();
+                        String key = string();
+                        expect( ':' );
+                        map.put( key, value() );
+                    } while( consume( ',' ) );
+                    expect( '}' );
+                }
+                return map;
+            } else if( c == '[' ) {
+                p++;
+                List<Object> list = new ArrayList<>();
+                if( !consume( ']' ) ) {
+                    do {
+                        list.add( value() );
+                    } while( consume( ',' ) );
+                    expect( ']' );
+                }
+                return list;
+            } else if( c == '"' ) {
+                return string();
+            } else if( s.startsWith( "true", p ) ) {
+                p += 4;
+                return Boolean.TRUE;
+            } else if( s.startsWith( "false", p ) ) {
+                p += 5;
+                return Boolean.FALSE;
+            } else if( s.startsWith( "null", p ) ) {
+                p += 4;
+                return null;
+            }
+            int start = p;
+            while( p < s.length() && "+-.0123456789eE".indexOf( s.charAt(p) ) >= 0 )
+                p++;
+            try {
+                return Double.parseDouble( s.substring( start, p ) );
+            } catch( NumberFormatException ex ) {
+                throw error();
+            }
+        }
+
+        private String string() {
+            if( p >= s.length() || s.charAt(p) != '"' )
+                throw error();
+            StringBuilder sb = new StringBuilder();
+            for( p++; p < s.length(); p++ ) {
+                char c = s.charAt( p );
+                if( c == '"' ) {
+                    p++;
+                    return sb.toString();
+                }
+                if( c == '\\' ) {
+                    if( ++p >= s.length() )
+                        break;
+                    c = s.charAt( p );
+                    switch( c ) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = '\f';
+                            break;
+                        case 'u':
+                            if( p + 4 >= s.length() )
+                                throw error();
+                            try {
+                                c = (char) Integer.parseInt( s.substring( p + 1, p + 5 ), 16 );
+                            } catch( NumberFormatException ex ) {
+                                throw error();
+                            }
+                            p += 4;
+                            break;
+                        default:                        // '"', '\\' and '/' stand for themselves
+                    }
+                }
+                sb.append( c );
+            }
+            throw error();
+        }
+
+        private void skipSpace() {
+            while( p < s.length() && Character.isWhitespace( s.charAt(p) ) )
+                p++;
+        }
+
+        // Skip c (after any whitespace) if it comes next. Returns true if it did.
+        private boolean consume( char c ) {
+            skipSpace();
+            if( p < s.length() && s.charAt(p) == c ) {
+                p++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect( char c ) {
+            if( !consume( c ) )
+                throw error();
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException( "Malformed JSON at offset " + p );
+        }
+    }
+}
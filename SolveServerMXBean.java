@@ -0,0 +1,34 @@
+package sudokusolver;
+
+/**
+ * The metrics of SolveServer, as exported over JMX.
+ */
+public interface SolveServerMXBean {
+
+    long getRequests();
+
+    // Requests refused because their puzzles did not fit in the queue
+    long getRejected();
+
+    // Puzzles finished, whether solved, invalid or timed out
+    long getPuzzles();
+
+    long getSolved();
+
+    long getInvalid();
+
+    long getTimeouts();
+
+    // Batches taken off the queue by the workers
+    long getBatches();
+
+    // Puzzles waiting in the queue
+    int getQueued();
+
+    double getPuzzlesPerSecond();
+
+    // Percentiles of the time from a request arriving to each of its puzzles being finished, over the latest puzzles
+    long getLatencyP50Micros();
+
+    long getLatencyP99Micros();
+}
@@ -0,0 +1,162 @@
+package sudokusolver;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters describing where a solve spent its effort. Pass a SolveStats to Solver.solve(SolveStats)
+ * to fill it in; counters are added to, so one SolveStats may collect several solves, and
+ * add(SolveStats) merges the stats of solves run on other threads. A SolveStats can be registered
+ * as an MXBean to watch a long batch from JMX.
+ */
+public class SolveStats implements SolveStatsMXBean {
+    static final int KNOWNS = 0;             // Eliminations are credited to KNOWNS or to a Rule (see index), see Solver.rule
+    static final int RULES = 1 + Rule.values().length;
+
+    long solves;
+    long gaveUp;                             // Solves which reached a limit first (see SolveLimits)
+    long passes;                             // Calls of Solver.updateAll()
+    final long[] eliminations = new long[RULES];    // Candidates removed by each rule
+    final long[] hits = new long[RULES];     // Passes in which each Rule made progress
+    long searchNodes;                        // Possibilities tried by Solver.tryPossibilities()
+    long backtracks;                         // Possibilities which were undone
+    long restarts;                           // Searches abandoned by Solver for a fresh start (see Solver.setRestarts)
+    long backjumps;                          // Levels of the search skipped by backjumping (see Solver.setLearning)
+    long nogoods;                            // Nogoods learned
+    long nogoodPrunes;                       // Branches pruned by a learned nogood
+    int maxDepth;                            // Deepest level of tryPossibilities reached
+    long propagationNanos;                   // Time spent propagating before the search began
+    long searchNanos;                        // Time spent searching
+
+    // Adds the counters of other to this one
+    public synchronized void add( SolveStats other ) {
+        synchronized( other ) {
+            solves += other.solves;
+            gaveUp += other.gaveUp;
+            passes += other.passes;
+            for( int r = 0; r < RULES; r++ ) {
+                eliminations[r] += other.eliminations[r];
+                hits[r] += other.hits[r];
+            }
+            searchNodes += other.searchNodes;
+            backtracks += other.backtracks;
+            restarts += other.restarts;
+            backjumps += other.backjumps;
+            nogoods += other.nogoods;
+            nogoodPrunes += other.nogoodPrunes;
+            maxDepth = Math.max( maxDepth, other.maxDepth );
+            propagationNanos += other.propagationNanos;
+            searchNanos += other.searchNanos;
+        }
+    }
+
+    // Index of rule in eliminations and hits
+    static int index( Rule rule ) {
+        return 1 + rule.ordinal();
+    }
+
+    // Registers this as an MXBean named sudokusolver:type=SolveStats,name=<name>
+    public void registerMBean( String name ) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean( this,
+                new ObjectName( "sudokusolver:type=SolveStats,name=" + ObjectName.quote(name) ) );
+    }
+
+    @Override
+    public synchronized long getSolves() {
+        return solves;
+    }
+
+    @Override
+    public synchronized long getGaveUp() {
+        return gaveUp;
+    }
+
+    @Override
+    public synchronized long getPasses() {
+        return passes;
+    }
+
+    @Override
+    public synchronized long getKnownsEliminations() {
+        return eliminations[KNOWNS];
+    }
+
+    @Override
+    public synchronized Map<String, Long> getRuleEliminations() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for( Rule rule : Rule.values() )
+            map.put( rule.label(), eliminations[index(rule)] );
+        return map;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getRuleHits() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for( Rule rule : Rule.values() )
+            map.put( rule.label(), hits[index(rule)] );
+        return map;
+    }
+
+    @Override
+    public synchronized long getSearchNodes() {
+        return searchNodes;
+    }
+
+    @Override
+    public synchronized long getBacktracks() {
+        return backtracks;
+    }
+
+    @Override
+    public synchronized long getRestarts() {
+        return restarts;
+    }
+
+    @Override
+    public synchronized long getBackjumps() {
+        return backjumps;
+    }
+
+    @Override
+    public synchronized long getNogoods() {
+        return nogoods;
+    }
+
+    @Override
+    public synchronized long getNogoodPrunes() {
+        return nogoodPrunes;
+    }
+
+    @Override
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public synchronized long getPropagationNanos() {
+        return propagationNanos;
+    }
+
+    @Override
+    public synchronized long getSearchNanos() {
+        return searchNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( String.format( "%d solves (%d gave up), %d passes, eliminations", solves, gaveUp, passes ) );
+        sb.append( " knowns " ).append( eliminations[KNOWNS] );
+        for( Rule rule : Rule.values() ) {
+            int r = index( rule );
+            sb.append( ", " ).append( rule.label() ).append( ' ' ).append( eliminations[r] )
+                    .append( " (" ).append( hits[r] ).append( " hits)" );
+        }
+        sb.append( String.format( ", %d search nodes, %d backtracks, %d restarts, %d backjumps, %d nogoods (%d prunes), max depth %d, propagation %.3f ms, search %.3f ms",
+                searchNodes, backtracks, restarts, backjumps, nogoods, nogoodPrunes, maxDepth, propagationNanos / 1e6, searchNanos / 1e6 ) );
+        return sb.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package sudokusolver;
+
+import java.util.Map;
+
+/**
+ * The counters of SolveStats, as exported over JMX.
+ */
+public interface SolveStatsMXBean {
+
+    long getSolves();
+
+    // Solves which reached a limit first
+    long getGaveUp();
+
+    long getPasses();
+
+    long getKnownsEliminations();
+
+    // Candidates removed by each Rule, by label
+    Map<String, Long> getRuleEliminations();
+
+    // Passes in which each Rule made progress, by label
+    Map<String, Long> getRuleHits();
+
+    long getSearchNodes();
+
+    long getBacktracks();
+
+    long getRestarts();
+
+    long getBackjumps();
+
+    long getNogoods();
+
+    long getNogoodPrunes();
+
+    int getMaxDepth();
+
+    long getPropagationNanos();
+
+    long getSearchNanos();
+}
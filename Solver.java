@@ -1,492 +1,1693 @@
-
-package sudokusolver;
-
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
-public class Solver {
-    private final int n;                 // Block size of sudoku (standar sudoku has n = 3)
-    private final int n2;                // Side length of sudoku, equal to n^2;
-    private int[][] board;               // The sudoku board. A -1 is interpreted as an empty entry
-    private Set<Integer>[] row;          // The set of known entries in each row
-    private Set<Integer>[] col;          // The set of known entries in each column
-    private Set<Integer>[][] block;      // The set of known entries in each block
-    private Set<Integer>[][] candidates; // A set of candidates for each entry in Sudoku
-    private Set<Integer>[][] rowPoss;      // Entry i,k stores the set of possible columns which might contain number k in row i
-    private Set<Integer>[][] colPoss;      // Entry j,k stores the set of possible rows which might contain number k in column j
-    private Set<Integer>[][][] blockPossRow; // Entry a,b,k stores the set of rows within block (a,b) which might contain number k + 1
-    private Set<Integer>[][][] blockPossCol; // Entry a,b,k stores the set of columns within block (a,b) which might contain number k + 1
-    private int totalPoss;                  // Sum of sizes of all candidate sets and possibility sets (row/colPoss, blockPossRow/Col)
-    private int unknowns;                   // Number of unknown entries in board
-    
-    public Solver(int[][] board) {
-        n2 = board.length;
-        n = (int) Math.sqrt(n2);
-        
-        this.board = board;
-        
-        row = (Set<Integer>[]) new Set[n2];
-        col = (Set<Integer>[]) new Set[n2];
-        block = (Set<Integer>[][]) new Set[n][n];       
-        candidates = (Set<Integer>[][]) new Set[n2][n2];
-        rowPoss = (Set<Integer>[][]) new Set[n2][n2];
-        colPoss = (Set<Integer>[][]) new Set[n2][n2];
-        blockPossRow = (Set<Integer>[][][]) new Set[n][n][n2];
-        blockPossCol = (Set<Integer>[][][]) new Set[n][n][n2];        
-        
-        for( int i = 0; i < n2; i++ ) {
-            row[i] = new HashSet<>();
-            col[i] = new HashSet<>();
-            block[i % n][i / n] = new HashSet<>();
-            
-            for( int j = 0; j < n2; j++ ) {
-                
-                candidates[i][j] = new HashSet<>();
-                if( board[i][j] == -1 ) {            // -1 interpreted as empty entry
-                    for( int k = 1; k <= n2; k++ )   // Add numbers 1,...,n2
-                            candidates[i][j].add(k);
-                } else
-                    candidates[i][j].add( board[i][j] );
-                    
-                rowPoss[i][j] = new HashSet<>();
-                colPoss[i][j] = new HashSet<>();
-                blockPossRow[i % n][i / n][j] = new HashSet<>();
-                blockPossCol[i % n][i / n][j] = new HashSet<>();
-            }
-        }
-        totalPoss = 3*n2*n2*n2 + 2*n*n*n2*n; // Largest totalPoss could be
-        unknowns = n2 * n2;                  // Largest unknowns could be
-    }
-    
-    // Solves sudoku if possible. Returns true if board was solved, false if board was invalid.
-    public boolean solve() {
-        int state = updateAllWhilePoss();
-
-        if( state == 1 )
-            state = tryPossibilities( this );
-               
-        return state == 2;
-    }
-    
-    /** 
-     * Recursively try all possibilities for location given by minCandidatesLoc().
-     * Return 0 if board is invalid in all possibilities, 2 if board is solved.
-     */
-    private int tryPossibilities( Solver previousSolver ) {
-        int[] minLoc = previousSolver.minCandidatesLoc();    // Find location of smallest candidate set in previousSolver
-        int x = minLoc[0];
-        int y = minLoc[1];
-        
-        for( int k : previousSolver.candidates[x][y] ) {
-            Solver currentSolver = new Solver( previousSolver.copyBoard() ); // Create a new solver whose board is that of previousSolver
-            currentSolver.board[x][y] = k;                                   // but with k in the (x,y) location.
-            
-            int state = currentSolver.updateAllWhilePoss();
-            
-            if( state == 1 ) {
-                state = tryPossibilities( currentSolver );    // If board not solved and not invalid, recursively apply tryPossibilities
-            }  
-            
-            if( state == 2 ) {                                // If board solved, copy solved board to previousSolver
-                previousSolver.board = currentSolver.board;
-                return 2;
-            }     
-        }
-        
-        return 0;
-    }
-    
-    /** 
-     * Run updateAll() as long as the board is valid, unknowns > 0, and progress can be made without
-     * trial and error. Returns 0 if board becomes invalid, 1 if no progress can be made but unknowns > 0,
-     * and 2 if board has been solved.
-     */
-    private int updateAllWhilePoss() {
-        int lastTotalPoss = totalPoss + 1;
-
-        while ( lastTotalPoss > totalPoss && unknowns > 0 ) {
-            lastTotalPoss = totalPoss;
-            if( !updateAll() )
-                return 0;
-        }
-
-        if( unknowns > 0 )
-            return 1; 
-    
-        return 2;
-    }
-    
-    // Run all update methods in proper order. Returns false if board becomes invalid.
-    private boolean updateAll() {
-        if( !updateKnowns() )
-            return false;
-        updateCandidatesViaKnownsAndBoard();
-
-        updateRowColPossViaCandidates();
-        updateRowColPossViaSelf();
-        updateCandidatesViaRowColPoss();
-
-        updateBlockPossViaCandidates();
-        updateBlockPossViaSelf();
-        updateCandidatesViaBlockPoss();
-
-        updateBoardViaCandidates();
-        updateBoardViaRowColPoss();
-        updateBoardViaBlockPoss();
-
-        updateTotalPoss();
-        updateUnknowns();
-        
-        return true;
-    }
-    
-    private void updateTotalPoss() {
-        totalPoss = 0;
-        
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {             
-                totalPoss += candidates[i][j].size();
-                totalPoss += rowPoss[i][j].size();
-                totalPoss += colPoss[i][j].size();
-                totalPoss += blockPossRow[i / n][i % n][j].size();
-                totalPoss += blockPossCol[i / n][i % n][j].size();
-            }
-        }
-    }
-    
-    private void updateUnknowns() {
-        unknowns = 0;
-        
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {             
-                if( board[i][j] == -1 )
-                    unknowns++;
-            }
-        }        
-    }
-    
-    // Update board using candidate sets
-    private void updateBoardViaCandidates() {
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {             
-                if( candidates[i][j].size() == 1 ) {
-                    board[i][j] = candidates[i][j].iterator().next();
-                }
-            }
-        }
-    }
-    
-    // Update board using row and column possibilites
-    private void updateBoardViaRowColPoss() {
-        for( int i = 0; i < n2; i++ ) {
-            for( int k = 0; k < n2; k++ ) {  
-                if( rowPoss[i][k].size() == 1 ) {
-                    int s = rowPoss[i][k].iterator().next();
-                    board[i][s] = k + 1;
-                }
-                if( colPoss[i][k].size() == 1 ) {
-                    int r = colPoss[i][k].iterator().next();
-                    board[r][i] = k + 1;
-                }
-            }
-        }
-    }
-    
-    // Update board using block possibilities
-    private void updateBoardViaBlockPoss() {
-        for( int i = 0; i < n; i++ ) {
-            for( int j = 0; j < n; j++ ) {  
-                for( int k = 0; k < n2; k++ ) {
-                    if( blockPossRow[i][j][k].size() == 1 
-                            && blockPossCol[i][j][k].size() == 1 ) {
-                        
-                        int r = blockPossRow[i][j][k].iterator().next();
-                        int s = blockPossCol[i][j][k].iterator().next();
-                        board[r][s] = k + 1;
-                    }
-                }
-            }
-        }
-    }
-    
-    /**
-     * Update knowns (row, col, block) sets using board. Returns false if 
-     * board is not valid sudoku
-     */
-    private boolean updateKnowns() {
-        for( int i = 0; i < n2; i++ ) {
-            row[i].clear();
-            col[i].clear();
-            block[i / n][i % n].clear();
-        }
-        
-        boolean b = true;
-        
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                int entry = board[i][j];
-                if( entry == -1 )        // If entry is -1, interpret as blank.
-                    continue;
-                if( !row[i].add( entry ) | !col[j].add(entry) 
-                        | !block[i / n][j / n].add(entry) )  // Try to add entry to various sets,
-                    b = false;                               // record false for b if fails.
-            }                             
-        }
-   
-        return b;
-    }
-    
-    // Update the candidate sets using knowns and current board state
-    private void updateCandidatesViaKnownsAndBoard() {        
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                
-                if( board[i][j] == -1 ) {
-                    candidates[i][j].removeAll( row[i] );
-                    candidates[i][j].removeAll( col[j] );
-                    candidates[i][j].removeAll( block[i / n][j / n] );
-                } else {
-                    candidates[i][j].clear();
-                    candidates[i][j].add( board[i][j] );
-                }            
-            }
-        }
-    }
-    
-    // Update the candidate sets using row and column possibilities
-    private void updateCandidatesViaRowColPoss() {
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                for( int k = 0; k < n2; k++ ) {
-                    
-                    if( !rowPoss[i][k].contains(j)
-                            || !colPoss[j][k].contains(i) )
-                        candidates[i][j].remove(k + 1);
-                }
-            }
-        }
-    }
-
-    // Update candidate sets using block possibilities
-    private void updateCandidatesViaBlockPoss() {
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                for( int k = 0; k < n2; k++ ) {
-                    
-                    if( !blockPossRow[i / n][j / n][k].contains(i)
-                            || !blockPossCol[i / n][j / n][k].contains(j) )
-                        candidates[i][j].remove(k + 1);
-                }
-            }
-        }
-    }
-    
-    /**
-     * Return location (in the form of an array) of smallest candidates set which
-     * is not a singleton. Returns [-1, -1] if no such.
-     */
-    private int[] minCandidatesLoc() {
-        int[] minLoc = {-1, -1};
-        int minSize = n2 + 1;
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                int size = candidates[i][j].size();
-                if( size > 1 && size < minSize  ) {
-                    minSize = size;
-                    minLoc[0] = i;
-                    minLoc[1] = j;
-                }
-            }
-        }
-        return minLoc;
-    }
-    
-    // Update rowPoss and colPoss sets using candidate sets
-    private void updateRowColPossViaCandidates() {
-        for( int i = 0; i < n2; i++ ) {
-            for( int k = 0; k < n2; k++ ) {
-                rowPoss[i][k].clear();
-                colPoss[i][k].clear(); 
-            }
-        }
-        
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                for( int k : candidates[i][j] ) {
-                    rowPoss[i][k - 1].add(j);
-                    colPoss[j][k - 1].add(i);
-                }
-            }
-        }
-    } 
-    
-    // Update rowPoss and colPoss using the same sets
-    private void updateRowColPossViaSelf() {
-        
-        for( int k = 0; k < n2; k++ ) {    // Loop through possible values in rows or columns
-            
-            Map<Set<Integer>, Set<Integer>> rowSets = new HashMap<>(); // Map which takes a set of integers A to the set of indices i
-            Map<Set<Integer>, Set<Integer>> colSets = new HashMap<>(); // such that rowPoss[i][k] is a subset of A. Similarly for colPoss.
-            
-            for( int i = 0; i < n2; i++ ) {    // Create maps rowSets and colSets
-                
-                Set<Integer> rowSet = rowPoss[i][k];
-                
-                
-                for( Set<Integer> set : rowSets.keySet() ) {
-                    if( set.containsAll(rowSet) )
-                        rowSets.get( set ).add( i );
-                }
-                if( !rowSets.keySet().contains(rowSet) ) {
-                    Set<Integer> rowSetCopy = new HashSet<>();
-                    rowSetCopy.addAll(rowSet);
-                    Set<Integer> indexSet = new HashSet<>();
-                    indexSet.add(i);
-                    rowSets.put( rowSetCopy, indexSet );
-                }
-
-                Set<Integer> colSet = colPoss[i][k];
-                
-                for( Set<Integer> set : colSets.keySet() ) {
-                    if( set.containsAll(colSet) )
-                        colSets.get( set ).add( i );
-                }
-                if( !colSets.keySet().contains (colSet) ) {
-                    Set<Integer> colSetCopy = new HashSet<>();
-                    colSetCopy.addAll(colSet);
-                    Set<Integer> indexSet = new HashSet<>();
-                    indexSet.add(i);
-                    colSets.put( colSetCopy, indexSet );
-                }    
-            }  
-            
-            for( Set<Integer> set : rowSets.keySet() ) {
-                if( set.size() == rowSets.get( set ).size() ) {    // In this case the possibilities in set are used up by rows corresponding to
-                    for( int i = 0; i < n2; i++ ) {                // to indices in rowSets.get( set ), so we may remove set from all other 
-                        if( !rowSets.get( set ).contains(i) )      // rowPoss sets.
-                            rowPoss[i][k].removeAll( set );
-                    }
-                }      
-            }
-            
-            for( Set<Integer> set : colSets.keySet() ) {
-                if( set.size() == colSets.get( set ).size() ) {    // Same for colSets
-                    for( int i = 0; i < n2; i++ ) {
-                        if( !colSets.get( set ).contains(i) )
-                            colPoss[i][k].removeAll( set );
-                    }
-                }      
-            }
-        }
-    }
-    
-    // Update blockPoss sets using candidate sets
-    private void updateBlockPossViaCandidates() {
-        for( int i = 0; i < n2; i++ ) {
-            for( int k = 0; k < n2; k++ ) {
-                blockPossRow[i % n][i / n][k].clear();
-                blockPossCol[i % n][i / n][k].clear(); 
-            }
-        }
-        
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                for( int k : candidates[i][j] ) {
-                    blockPossRow[i / n][j / n][k - 1].add(i);
-                    blockPossCol[i / n][j / n][k - 1].add(j);
-                }
-            }
-        }
-    }
-    
-    // Update blockPoss sets using the same sets
-    private void updateBlockPossViaSelf() {
-        for( int k = 0; k < n2; k++ ) {         // Loop through possible values in blocks
-            for( int i = 0; i < n; i++ ) {      // Loop blocks
-                Map<Set<Integer>, Set<Integer>> rowSets = new HashMap<>(); // Map which takes a set of integers A to the set of indices j such that
-                Map<Set<Integer>, Set<Integer>> colSets = new HashMap<>(); // blockPossRow[i][j][k] is a subset of A. Similarly for blockPossCol[j][i][k]
-                for( int j = 0; j < n; j++ ) {  // Create rowSets and colsets maps
-                    
-                    Set<Integer> rowSet = blockPossRow[i][j][k];
-                    
-                    for( Set<Integer> set : rowSets.keySet() ) {
-                        if( set.containsAll(rowSet) )
-                            rowSets.get( set ).add(j);
-                    }
-                    if( !rowSets.keySet().contains(rowSet) ) {
-                        Set<Integer> rowSetCopy = new HashSet<>();
-                        rowSetCopy.addAll(rowSet);
-                        Set<Integer> indexSet = new HashSet<>();
-                        indexSet.add(j);
-                        rowSets.put( rowSetCopy, indexSet );
-                    }
-                    
-                    Set<Integer> colSet = blockPossCol[j][i][k];
-                    
-                    for( Set<Integer> set : colSets.keySet() ) {
-                        if( set.containsAll(colSet) )
-                            colSets.get( set ).add(j);
-                    }
-                    if( !colSets.keySet().contains(colSet) ) {
-                        Set<Integer> colSetCopy = new HashSet<>();
-                        colSetCopy.addAll(colSet);
-                        Set<Integer> indexSet = new HashSet<>();
-                        indexSet.add(j);
-                        colSets.put( colSetCopy, indexSet );
-                    }
-                }
-                
-                for( Set<Integer> set : rowSets.keySet() ) {
-                    if( set.size() == rowSets.get( set ).size() ) {   // In this case the possibilities in set are used up by blocks corresponding to
-                        for( int j = 0; j < n; j++ ) {                // to indices in rowSets.get( set ), so we may remove set from all other 
-                            if( !rowSets.get( set ).contains(j) )     // blockPossRow sets.
-                                blockPossRow[i][j][k].removeAll( set );
-                        }
-                    }      
-                }
-                for( Set<Integer> set : colSets.keySet() ) {
-                    if( set.size() == colSets.get( set ).size() ) {    // Similarly for blockPossCol sets
-                        for( int j = 0; j < n; j++ ) { 
-                            if( !colSets.get( set ).contains(j) )
-                                blockPossCol[j][i][k].removeAll( set );
-                        }
-                    }      
-                }
-            }
-        }
-    }
-    
-    // Returns a copy of board
-    private int[][] copyBoard() {
-        int[][] copy = new int[n2][n2];
-        for( int i = 0; i < n2; i++ )
-            for( int j = 0; j < n2; j++ )
-                copy[i][j] = board[i][j];
-        return copy;
-    }
-    
-    // Prints sudoku nicely when n < 4
-    public void printBoard() {
-        for( int i = 0; i < n2; i++ ) {
-            for( int j = 0; j < n2; j++ ) {
-                System.out.print( board[i][j] + " " );
-                if( (j + 1) % n == 0 && j != n2 - 1 )
-                    System.out.print("| ");
-            }
-            System.out.println("");
-            if( (i + 1) % n == 0 && i != n2 - 1 ) {
-                for( int k = 0; k < 2*n2 + 2*(n-1) - 1; k++ )
-                    System.out.print("-");
-                System.out.println("");
-            }
-        }
-        System.out.println("");
-    }
-
-    public int[][] getBoard() {
-        return board;
-    }
-
-}
+package sudokusolver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves n^2 x n^2 sudokus. All sets of numbers and indices are stored as bitmasks
+ * (see Bits), each occupying w longs of a flat array, so no objects are created
+ * while propagating. Numbers 1,...,n2 are stored as bits 0,...,n2 - 1.
+ */
+public class Solver {
+    private static final int ROWS = 0;         // Kinds of group of sets, used by findSubsets
+    private static final int COLS = 1;
+    private static final int NAKED = 2;
+    private static final int HIDDEN = 3;
+    private static final Rule[] DEFAULT_RULES = { Rule.POINTING, Rule.BOX_LINE, Rule.X_WING, Rule.SWORDFISH, Rule.JELLYFISH };
+    private static final Rule[] ALL_RULES = Rule.values();    // Kept, as values() copies the array on every call
+    static final int PROGRESS_INTERVAL = 1024;    // Search nodes between reports to a SolveProgress
+    private static final int CLOCK_INTERVAL = 4;   // Checks of the limits between readings of the clock
+    private static final int RULE_HALF_LIFE = 256; // Runs of a rule between halvings of its figures for RuleOrder.ADAPTIVE
+    private static final int PLACED = 0;       // Kinds of change recorded on the trail
+    private static final int KNOWN = 1;
+    private static final int REMOVED = 2;
+    
+    private int n;                       // Block size of sudoku (standar sudoku has n = 3)
+    private int n2;                      // Side length of sudoku, equal to n^2;
+    private int w;                       // Number of longs used for each set, equal to ceil(n2 / 64)
+    private int[] cells;                 // The sudoku board, entry (i,j) at i*n2 + j. A -1 is interpreted as an empty entry
+    private int[][] board;               // The board as given by the caller, where results are written back; null if given as a Board
+    private Board target;                // Likewise when given as a Board, null otherwise
+    private long[] row;                  // The set of known entries in each row
+    private long[] col;                  // The set of known entries in each column
+    private long[] block;                // The set of known entries in each block
+    private long[] candidates;           // A set of candidates for each entry in Sudoku
+    private long[] rowPoss;              // Entry i,k stores the set of possible columns which might contain number k + 1 in row i
+    private long[] colPoss;              // Entry j,k stores the set of possible rows which might contain number k + 1 in column j
+    private long[] blockPossRow;         // Entry a,b,k stores the set of rows within block (a,b) which might contain number k + 1
+    private long[] blockPossCol;         // Entry a,b,k stores the set of columns within block (a,b) which might contain number k + 1
+    private Rule[] rules = DEFAULT_RULES;    // The rules applied by updateAll, in the order given to setRules
+    private RuleOrder ruleOrder = RuleOrder.FIXED;
+    private Rule[] schedule = DEFAULT_RULES; // The rules in the order updateAll applies them: rules itself unless the order is ADAPTIVE
+    private final long[] ruleNanos = new long[ALL_RULES.length];    // Entry r.ordinal() is the time rule r has taken while ADAPTIVE, halved now and then
+    private final long[] ruleYields = new long[ALL_RULES.length];   // Likewise the possibilities (see totalPoss) it removed
+    private final int[] ruleRuns = new int[ALL_RULES.length];       // Runs of each rule since its figures were last halved
+    private int maxSubsetSize = 4;       // Largest group the naked and hidden subset rules look for
+    private int groupLimit;              // Largest group findSubsets is currently looking for
+    private long[] keys;                 // Scratch space for the sets considered by findSubsets
+    private int[] members;               // Entry t is the index within its unit of the set keys[t]
+    private long[] unions;               // Entry d is the union of the first d sets chosen by findSubsets
+    private int[] chosen;                // Indices into keys of the sets chosen by findSubsets
+    private int[] numberChanges;         // Entry k counts the removals of number k + 1 from candidate sets
+    private int[] unitChanges;           // Entry u counts the removals from candidate sets in unit u (see unitRow)
+    private int[][] seen;                // Entry r holds the counts of numberChanges (or unitChanges) when Rule r last considered them
+    private Branching branching = Branching.SMALLEST;      // How tryPossibilities chooses what to branch on
+    private ValueOrder valueOrder = ValueOrder.ASCENDING;   // The order tryPossibilities tries its branches in
+    private long restartNodes;           // Search nodes before the first restart, 0 for no restarts
+    private long restartSeed;
+    private long nodeLimit;              // Search nodes allowed in the current attempt when restarting, 0 for no limit
+    private long attemptNodes;           // Search nodes tried in the current attempt
+    private boolean stopped;             // True once the node limit or a limit of the solve cut the current attempt short
+    private SplittableRandom random;     // Breaks ties between branches while restarting, null otherwise
+    private NogoodCache nogoods;         // Nogoods learned by the search, null unless learning is on (see setLearning)
+    private boolean learning;            // True while solve() searches with learning on
+    private long[] reasons;              // Entry (i*n2 + j)*n2 + k is the set of levels (see levelBit) which removed k + 1 from entry (i,j)
+    private long[] placeReasons;         // Entry i*n2 + j is the set of levels which placed the number in entry (i,j)
+    private long reason;                 // Levels behind the removals being made now
+    private long conflict;               // Levels behind the latest failure
+    private int[] decisions;             // Entry d is the branch (see branches) being tried at level d of tryPossibilities
+    private int[] nogood;                // Scratch space for the nogood being learned
+    private int[] branches;              // Stack of the branches (as (i*n2 + j)*n2 + k) of each level of tryPossibilities
+    private int[] scores;                // Entry t is the score of branches[t], lower scores are tried first
+    private int branchTop;
+    private int[] queue;                 // Entries (as i*n2 + j) placed on the board but not yet propagated by updateKnowns()
+    private int queueHead;
+    private int queueTail;
+    private boolean invalid;             // True once the board is found to be invalid
+    private int[] trail;                 // Changes made since tryPossibilities began, so that they can be undone (see record())
+    private int trailSize;
+    private boolean trailing;            // True once tryPossibilities has begun, before that no changes need recording
+    private volatile boolean cancelled;  // Set by cancel(), possibly from another thread
+    private Solver owner = this;         // The solver whose cancel() stops this one: itself, or the one running solveParallel
+    private SolveProgress progress;      // Told how the search is going, null if nobody is listening
+    private long searchNodes;            // Search nodes tried by this solver
+    private SolveLimits limits = SolveLimits.NONE;    // Limits of the current solve
+    private long nodeBudget;             // Value of searchNodes at which to give up, 0 for no limit
+    private int limitChecks;             // Calls of limitReached(), to read the clock only now and then
+    private boolean gaveUp;              // True once a limit (or cancel()) has stopped the current solve
+    private AtomicReference<int[]> solution;   // Solution shared by the tasks of solveParallel, null when solving sequentially
+    private AtomicLong sharedNodes;      // Search nodes of all the tasks of solveParallel, null when solving sequentially
+    private SolveStats stats;            // Where counters are recorded, null when they are not wanted
+    private int rule = SolveStats.KNOWNS;    // The rule eliminations are currently credited to
+    private int depth;                   // Current depth of tryPossibilities
+    private int solutionLimit;           // When counting solutions, the number at which to stop; 0 when solving
+    private int solutionCount;           // Solutions found so far when counting
+    private int[] firstSolution;         // Copy of the first solution found when counting
+    private int totalPoss;                  // Sum of sizes of all candidate sets and possibility sets (row/colPoss, blockPossRow/Col)
+    private int unknowns;                   // Number of unknown entries in board
+    private long givenEliminations;         // Candidates init() ruled out because of the givens, credited to knowns by the next solve
+    
+    // Creates a solver for board, which is solved in place
+    public Solver(int[][] board) {
+        reset( board );
+    }
+    
+    // Creates a solver for board, which is solved in the storage it wraps
+    public Solver( Board board ) {
+        reset( board );
+    }
+    
+    /**
+     * Makes this solver start afresh on board, which is solved in place. The settings (rules,
+     * branching, restarts, learning, progress) are kept, but nothing else of the last puzzle,
+     * including learned nogoods and cancel(). The arrays of the solver are reused when board has
+     * the same size as the last one, so solving many puzzles with one solver allocates nothing
+     * per puzzle.
+     */
+    public void reset( int[][] board ) {
+        if( cells == null || board.length != n2 )
+            allocate( board.length );
+        for( int i = 0; i < n2; i++ )
+            System.arraycopy( board[i], 0, cells, i * n2, n2 );
+        this.board = board;
+        target = null;
+        init();
+    }
+    
+    // Like reset(int[][]), for a Board
+    public void reset( Board board ) {
+        if( cells == null || board.sideLength() != n2 )
+            allocate( board.sideLength() );
+        for( int c = 0; c < n2 * n2; c++ )
+            cells[c] = board.get( c );
+        this.board = null;
+        target = board;
+        init();
+    }
+    
+    // Allocate the arrays for boards of side n2
+    private void allocate( int n2 ) {
+        this.n2 = n2;
+        n = (int) Math.sqrt(n2);
+        w = Bits.words(n2);
+        
+        cells = new int[n2 * n2];
+        row = new long[n2 * w];
+        col = new long[n2 * w];
+        block = new long[n2 * w];
+        candidates = new long[n2 * n2 * w];
+        rowPoss = new long[n2 * n2 * w];
+        colPoss = new long[n2 * n2 * w];
+        blockPossRow = new long[n2 * n2 * w];
+        blockPossCol = new long[n2 * n2 * w];
+        keys = new long[n2 * w];
+        members = new int[n2];
+        unions = new long[(n2 + 1) * w];
+        chosen = new int[n2];
+        numberChanges = new int[n2];
+        unitChanges = new int[3 * n2];
+        seen = new int[ALL_RULES.length][];
+        for( Rule r : ALL_RULES )
+            seen[r.ordinal()] = new int[r.byUnit() ? 3 * n2 : n2];
+        queue = new int[n2 * n2];
+        trail = new int[n2 * n2];
+        branches = new int[n2 * n2];
+        scores = new int[n2 * n2];
+        if( nogoods != null ) {                  // Learning arrays depend on the size too
+            reasons = null;
+            setLearning( nogoods.capacity() );
+        }
+    }
+    
+    // Set up the state of the search for the puzzle in cells
+    private void init() {
+        Arrays.fill( row, 0 );
+        Arrays.fill( col, 0 );
+        Arrays.fill( block, 0 );
+        Arrays.fill( candidates, 0 );
+        Arrays.fill( rowPoss, 0 );
+        Arrays.fill( colPoss, 0 );
+        Arrays.fill( blockPossRow, 0 );
+        Arrays.fill( blockPossCol, 0 );
+        for( int[] counts : seen )
+            Arrays.fill( counts, 0 );
+        queueHead = 0;
+        queueTail = 0;
+        trailSize = 0;
+        trailing = false;
+        invalid = false;
+        depth = 0;
+        branchTop = 0;
+        unknowns = 0;
+        givenEliminations = 0;
+        conflict = 0;
+        stopped = false;
+        gaveUp = false;
+        cancelled = false;
+        searchNodes = 0;
+        if( nogoods != null ) {
+            nogoods.clear();
+            Arrays.fill( reasons, 0 );
+            Arrays.fill( placeReasons, 0 );
+        }
+        
+        for( int i = 0; i < n2; i++ ) {             // The given entries go straight into the knowns sets
+            for( int j = 0; j < n2; j++ ) {
+                int k = cells[i * n2 + j] - 1;
+                if( k == -2 ) {                         // -1 interpreted as empty entry
+                    unknowns++;
+                    continue;
+                }
+                int blockOff = blockIndex(i / n, j / n) * w;
+                if( Bits.contains( row, i * w, k ) || Bits.contains( col, j * w, k ) || Bits.contains( block, blockOff, k ) )
+                    fail( 0 );                          // Given twice in a unit
+                Bits.add( row, i * w, k );
+                Bits.add( col, j * w, k );
+                Bits.add( block, blockOff, k );
+            }
+        }
+        
+        // The candidates of each empty entry are the numbers not known in its row, column or block,
+        // found a word at a time rather than by removing each known number from its peers in turn
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                int off = cell(i, j);
+                if( cells[i * n2 + j] == -1 ) {
+                    Bits.fill( candidates, off, w, n2 );
+                    Bits.removeAll( candidates, off, row, i * w, w );
+                    Bits.removeAll( candidates, off, col, j * w, w );
+                    Bits.removeAll( candidates, off, block, blockIndex(i / n, j / n) * w, w );
+                    givenEliminations += n2 - Bits.count( candidates, off, w );
+                } else {
+                    Bits.add( candidates, off, cells[i * n2 + j] - 1 );
+                }
+            }
+        }
+        buildPossViaCandidates();
+        
+        Arrays.fill( numberChanges, 1 );        // Every rule has everything left to consider
+        Arrays.fill( unitChanges, 1 );
+        
+        int size = n2 * n2 * w;
+        totalPoss = Bits.count( candidates, 0, size )
+                + Bits.count( rowPoss, 0, size )
+                + Bits.count( colPoss, 0, size )
+                + Bits.count( blockPossRow, 0, size )
+                + Bits.count( blockPossCol, 0, size );
+        placeSingles();
+    }
+    
+    /**
+     * Place the entries forced by the candidates found by init(): those with a single candidate,
+     * and the only place left for a number in a row, column or block. Finding none at all marks
+     * the board invalid. The placements are propagated by updateKnowns() as usual.
+     */
+    private void placeSingles() {
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                if( cells[i * n2 + j] != -1 )
+                    continue;
+                int off = cell(i, j);
+                int size = Bits.count( candidates, off, w );
+                if( size == 0 )
+                    fail( 0 );
+                else if( size == 1 )
+                    place( i, j, Bits.lowest( candidates, off, w ) + 1, 0 );
+            }
+        }
+        for( int u = 0; u < n2; u++ ) {
+            for( int k = 0; k < n2; k++ ) {
+                int off = unit(u, k);
+                int size = Bits.count( rowPoss, off, w );
+                if( size == 0 )
+                    fail( 0 );
+                else if( size == 1 )
+                    place( u, Bits.lowest( rowPoss, off, w ), k + 1, 0 );
+                size = Bits.count( colPoss, off, w );
+                if( size == 0 )
+                    fail( 0 );
+                else if( size == 1 )
+                    place( Bits.lowest( colPoss, off, w ), u, k + 1, 0 );
+                int rows = Bits.count( blockPossRow, off, w );
+                if( rows == 0 )
+                    fail( 0 );
+                else if( rows == 1 && Bits.count( blockPossCol, off, w ) == 1 )
+                    place( Bits.lowest( blockPossRow, off, w ), Bits.lowest( blockPossCol, off, w ), k + 1, 0 );
+            }
+        }
+    }
+    
+    // Copy the board into the array or Board it was given as
+    private void writeBack() {
+        if( board != null ) {
+            for( int i = 0; i < n2; i++ )
+                System.arraycopy( cells, i * n2, board[i], 0, n2 );
+        } else if( target != null ) {
+            for( int c = 0; c < n2 * n2; c++ )
+                target.set( c, cells[c] );
+        }
+    }
+    
+    // Creates a copy of other, which must be fully propagated (no entries waiting in its queue)
+    private Solver( Solver other ) {
+        n = other.n;
+        n2 = other.n2;
+        w = other.w;
+        
+        cells = other.cells.clone();
+        
+        row = other.row.clone();
+        col = other.col.clone();
+        block = other.block.clone();
+        candidates = other.candidates.clone();
+        rowPoss = other.rowPoss.clone();
+        colPoss = other.colPoss.clone();
+        blockPossRow = other.blockPossRow.clone();
+        blockPossCol = other.blockPossCol.clone();
+        keys = new long[n2 * w];
+        members = new int[n2];
+        unions = new long[(n2 + 1) * w];
+        chosen = new int[n2];
+        numberChanges = other.numberChanges.clone();
+        unitChanges = other.unitChanges.clone();
+        seen = new int[other.seen.length][];
+        for( int r = 0; r < seen.length; r++ )
+            seen[r] = other.seen[r].clone();
+        queue = new int[n2 * n2];
+        trail = new int[n2 * n2];
+        branches = new int[n2 * n2];
+        scores = new int[n2 * n2];
+        rules = other.rules;
+        ruleOrder = other.ruleOrder;
+        schedule = ruleOrder == RuleOrder.ADAPTIVE ? other.schedule.clone() : rules;
+        System.arraycopy( other.ruleNanos, 0, ruleNanos, 0, ruleNanos.length );
+        System.arraycopy( other.ruleYields, 0, ruleYields, 0, ruleYields.length );
+        System.arraycopy( other.ruleRuns, 0, ruleRuns, 0, ruleRuns.length );
+        branching = other.branching;
+        valueOrder = other.valueOrder;
+        maxSubsetSize = other.maxSubsetSize;
+        owner = other.owner;
+        progress = other.progress;
+        limits = other.limits;
+        nodeBudget = other.nodeBudget;
+        sharedNodes = other.sharedNodes;
+        invalid = other.invalid;
+        totalPoss = other.totalPoss;
+        unknowns = other.unknowns;
+    }
+    
+    // True if number is still a candidate of entry (i,j)
+    boolean isCandidate( int i, int j, int number ) {
+        return Bits.contains( candidates, cell(i, j), number - 1 );
+    }
+    
+    // Offset of the candidate set of entry (i,j)
+    private int cell( int i, int j ) {
+        return (i * n2 + j) * w;
+    }
+    
+    // Offset of the set for number k + 1 in row, column or block i. Used for rowPoss, colPoss and blockPoss sets.
+    private int unit( int i, int k ) {
+        return (i * n2 + k) * w;
+    }
+    
+    // Index of block (a,b), used with unit() and for the block knowns
+    private int blockIndex( int a, int b ) {
+        return a * n + b;
+    }
+    
+    // Row of the entry at position p of unit u. Units 0,...,n2 - 1 are the rows, then come the columns and the blocks.
+    private int unitRow( int u, int p ) {
+        if( u < n2 )
+            return u;
+        if( u < 2 * n2 )
+            return p;
+        return ((u - 2 * n2) / n) * n + p / n;
+    }
+    
+    // Column of the entry at position p of unit u
+    private int unitCol( int u, int p ) {
+        if( u < n2 )
+            return p;
+        if( u < 2 * n2 )
+            return u - n2;
+        return ((u - 2 * n2) % n) * n + p % n;
+    }
+    
+    /**
+     * Sets the rules applied after known entries are propagated, in the order given. Each rule only
+     * runs once the rules before it make no progress. The default is pointing, box/line reduction,
+     * X-Wing, Swordfish and Jellyfish; the naked and hidden subset rules cut down the search on hard
+     * puzzles, but on typical puzzles they cost more time than they save.
+     */
+    public void setRules( Rule... rules ) {
+        this.rules = rules.clone();
+        schedule = ruleOrder == RuleOrder.ADAPTIVE ? this.rules.clone() : this.rules;
+    }
+    
+    /**
+     * Sets the order in which the rules are tried, FIXED (the order given to setRules) by default.
+     * With ADAPTIVE the solver times each rule and counts what it removes, and tries the cheapest
+     * per removal first. The figures are kept by reset(), so a solver reused for many puzzles
+     * settles on the order that suits them; either way the deductions made are the same.
+     */
+    public void setRuleOrder( RuleOrder ruleOrder ) {
+        this.ruleOrder = ruleOrder;
+        schedule = ruleOrder == RuleOrder.ADAPTIVE ? rules.clone() : rules;
+    }
+    
+    /**
+     * Sets the largest group the naked and hidden subset rules look for: 2 for pairs, 3 for
+     * triples and 4 (the default) for quads. Sizes below 2 turn those rules off.
+     */
+    public void setMaxSubsetSize( int size ) {
+        maxSubsetSize = Math.max( 1, Math.min( size, n2 ) );
+    }
+    
+    // Sets how the search chooses what to branch on, SMALLEST by default
+    public void setBranching( Branching branching ) {
+        this.branching = branching;
+    }
+    
+    // Sets the order in which the search tries its branches, ASCENDING by default
+    public void setValueOrder( ValueOrder valueOrder ) {
+        this.valueOrder = valueOrder;
+    }
+    
+    /**
+     * Makes solve() restart its search from scratch after the given number of search nodes, with
+     * ties between branches broken at random (so ASCENDING becomes a random order). The limit
+     * grows by half after every restart, so the search still ends. A limit of 0 (the default)
+     * turns restarts off. Counting solutions and solveParallel never restart.
+     */
+    public void setRestarts( long nodes, long seed ) {
+        restartNodes = Math.max( 0, nodes );
+        restartSeed = seed;
+    }
+    
+    /**
+     * Turns on conflict-directed backjumping and nogood learning in solve(), keeping at most
+     * capacity nogoods; 0 (the default) turns them off. The search then tracks which of its
+     * decisions every removal depends on. When all the branches of a level fail, it jumps back to
+     * the deepest decision the failures depend on, and records the decisions involved as a nogood,
+     * which prunes any branch that would complete it later on (including after a restart).
+     * Removals made by the rules are blamed on every decision taken so far, and levels from 64
+     * on are not told apart, so learning pays off most with few rules and shallow searches.
+     */
+    public void setLearning( int capacity ) {
+        if( capacity <= 0 ) {
+            nogoods = null;
+            return;
+        }
+        nogoods = new NogoodCache( n2, capacity );
+        if( reasons == null ) {
+            reasons = new long[n2 * n2 * n2];
+            placeReasons = new long[n2 * n2];
+            decisions = new int[n2 * n2 + 1];
+            nogood = new int[NogoodCache.MAX_SIZE];
+        }
+    }
+    
+    // Reports the progress of the search to progress every PROGRESS_INTERVAL nodes, or to nobody if it is null
+    public void setProgress( SolveProgress progress ) {
+        this.progress = progress;
+    }
+    
+    /**
+     * Asks a running solve or countSolutions() to stop. solve(SolveStats, SolveLimits) and
+     * solveParallel(int, SolveLimits) then give up, while the others return as if the board were
+     * invalid, and isCancelled() tells the two apart. A cancelled solver stays cancelled. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    // Solves sudoku if possible. Returns true if board was solved, false if board was invalid.
+    public boolean solve() {
+        return solve( null );
+    }
+    
+    /**
+     * Solves sudoku like solve(), adding counters of the work done to stats (see SolveStats).
+     * If stats is null nothing is recorded.
+     */
+    public boolean solve( SolveStats stats ) {
+        return solve( stats, SolveLimits.NONE ) == SolveOutcome.SOLVED;
+    }
+    
+    /**
+     * Solves sudoku like solve(stats), but gives up once the deadline of limits passes, the search
+     * has tried its budget of nodes, or the token of limits (or cancel()) asks it to. The limits
+     * are checked at every search node and between passes of the rules, the clock only every
+     * CLOCK_INTERVAL checks. After giving up the board is left part filled in.
+     */
+    public SolveOutcome solve( SolveStats stats, SolveLimits limits ) {
+        this.stats = stats;
+        this.limits = limits;
+        nodeBudget = limits.maxNodes() > 0 ? searchNodes + limits.maxNodes() : 0;
+        gaveUp = false;
+        stopped = false;
+        if( stats != null )                     // The same eliminations as removing each given from its peers one by one
+            stats.eliminations[SolveStats.KNOWNS] += givenEliminations;
+        givenEliminations = 0;
+        long start = stats == null ? 0 : System.nanoTime();
+        
+        int state = updateAllWhilePoss();
+        
+        if( stats != null ) {
+            long now = System.nanoTime();
+            stats.solves++;
+            stats.propagationNanos += now - start;
+            start = now;
+        }
+
+        if( state == 1 ) {
+            learning = nogoods != null;
+            state = restartNodes > 0 ? searchWithRestarts() : tryPossibilities();
+            learning = false;
+        }
+        
+        SolveOutcome outcome = state == 2 ? SolveOutcome.SOLVED : gaveUp ? SolveOutcome.GAVE_UP : SolveOutcome.INVALID;
+        if( stats != null ) {
+            stats.searchNanos += System.nanoTime() - start;
+            if( outcome == SolveOutcome.GAVE_UP )
+                stats.gaveUp++;
+        }
+        this.stats = null;
+        this.limits = SolveLimits.NONE;
+        nodeBudget = 0;
+        writeBack();
+               
+        return outcome;
+    }
+    
+    /**
+     * Returns true once the current solve should give up: it has been cancelled, or has reached
+     * its deadline or node budget. Once true it stays true until the next solve.
+     */
+    private boolean limitReached() {
+        if( !gaveUp ) {
+            CancellationToken token = limits.token();
+            gaveUp = owner.cancelled
+                    || (token != null && token.isCancelled())
+                    || (nodeBudget > 0 && nodeCount() >= nodeBudget)
+                    || (limits.hasDeadline() && ++limitChecks % CLOCK_INTERVAL == 0 && System.nanoTime() - limits.deadline() >= 0);
+        }
+        return gaveUp;
+    }
+    
+    // Search nodes tried so far, by all the tasks together while solveParallel is running
+    private long nodeCount() {
+        return sharedNodes == null ? searchNodes : sharedNodes.get();
+    }
+    
+    /**
+     * Counts the solutions of the sudoku, stopping once limit (at least 1) have been found, so
+     * the result is the number of solutions or limit, whichever is smaller. If there is a
+     * solution, board is left holding the first one found.
+     */
+    public int countSolutions( int limit ) {
+        if( limit < 1 )
+            throw new IllegalArgumentException( "limit must be positive" );
+        
+        solutionLimit = limit;
+        solutionCount = 0;
+        gaveUp = false;
+        int state = updateAllWhilePoss();
+        if( state == 2 ) {
+            solutionCount = 1;
+        } else if( state == 1 ) {
+            tryPossibilities();
+            if( solutionCount > 0 )
+                System.arraycopy( firstSolution, 0, cells, 0, cells.length );
+        }
+        solutionLimit = 0;
+        writeBack();
+        return solutionCount;
+    }
+    
+    // Run tryPossibilities with a node limit, restarting with a larger limit until an attempt completes
+    private int searchWithRestarts() {
+        random = new SplittableRandom( restartSeed );
+        try {
+            for( long limit = restartNodes; ; limit += Math.max( 1, limit / 2 ) ) {
+                nodeLimit = limit;
+                attemptNodes = 0;
+                stopped = false;
+                int state = tryPossibilities();
+                if( !stopped || gaveUp )
+                    return state;
+                if( stats != null )
+                    stats.restarts++;
+            }
+        } finally {
+            random = null;
+            nodeLimit = 0;
+        }
+    }
+    
+    // Returns true if the sudoku has exactly one solution
+    public boolean hasUniqueSolution() {
+        return countSolutions(2) == 1;
+    }
+    
+    /**
+     * Record that the board is solved while counting solutions. Returns 2 if the limit has been
+     * reached, so the search should stop, and 0 if it should go on.
+     */
+    private int foundSolution() {
+        solutionCount++;
+        if( solutionCount == 1 ) {
+            if( firstSolution == null || firstSolution.length != cells.length )
+                firstSolution = new int[cells.length];
+            System.arraycopy( cells, 0, firstSolution, 0, cells.length );
+        }
+        return solutionCount >= solutionLimit ? 2 : 0;
+    }
+    
+    /**
+     * Solves sudoku like solve(), but the top levels of the search are split into tasks which run on
+     * a ForkJoinPool with the given parallelism. Once some task solves the board the others give up.
+     * Returns true if board was solved, false if board was invalid.
+     */
+    public boolean solveParallel( int parallelism ) {
+        return solveParallel( parallelism, SolveLimits.NONE ) == SolveOutcome.SOLVED;
+    }
+    
+    /**
+     * Solves sudoku like solveParallel(parallelism), but gives up like solve(SolveStats, SolveLimits).
+     * The limits, cancel() and setProgress() cover all the tasks together, so the node budget is
+     * shared between them and progress is reported from the threads of the pool.
+     */
+    public SolveOutcome solveParallel( int parallelism, SolveLimits limits ) {
+        this.limits = limits;
+        nodeBudget = limits.maxNodes() > 0 ? searchNodes + limits.maxNodes() : 0;
+        gaveUp = false;
+        int state = updateAllWhilePoss();
+        
+        if( state == 1 ) {
+            int splitDepth = 34 - Integer.numberOfLeadingZeros( parallelism );  // Roughly log2(parallelism) + 2 levels
+            sharedNodes = new AtomicLong( searchNodes );
+            SearchTask root = new SearchTask( new Solver(this), 0, splitDepth, new AtomicReference<>() );
+            ForkJoinPool pool = new ForkJoinPool( parallelism );
+            try {
+                pool.invoke( root );
+            } finally {
+                pool.shutdown();
+                searchNodes = sharedNodes.get();
+                sharedNodes = null;
+            }
+            
+            int[] solution = root.solution.get();
+            if( solution != null ) {              // Copy solved board into board
+                System.arraycopy( solution, 0, cells, 0, cells.length );
+                state = 2;
+            } else {
+                gaveUp = root.gaveUp;
+            }
+        }
+        
+        SolveOutcome outcome = state == 2 ? SolveOutcome.SOLVED : gaveUp ? SolveOutcome.GAVE_UP : SolveOutcome.INVALID;
+        this.limits = SolveLimits.NONE;
+        nodeBudget = 0;
+        writeBack();
+        return outcome;
+    }
+    
+    /**
+     * Splits the search for the sudoku into at least count subproblems, or as many as the search
+     * tree allows, by expanding its top levels breadth first with the branches of pushBranches().
+     * Each subproblem is the board with the entries of its branches (and what they imply) filled
+     * in, and every solution of the sudoku solves exactly one of them, so they can be searched
+     * separately, even by other processes (see SolveCoordinator). Returns no boards if the sudoku
+     * is invalid, and just the solution if one turns up while splitting. The board itself is
+     * left alone.
+     */
+    public List<int[][]> split( int count ) {
+        List<int[][]> parts = new ArrayList<>();
+        int state = updateAllWhilePoss();
+        if( state == 2 )
+            parts.add( entries() );
+        if( state != 1 )
+            return parts;
+        
+        ArrayDeque<Solver> frontier = new ArrayDeque<>();
+        frontier.add( new Solver(this) );
+        while( !frontier.isEmpty() && frontier.size() < count ) {
+            Solver solver = frontier.poll();
+            int branchCount = solver.pushBranches();
+            for( int t = 0; t < branchCount; t++ ) {
+                Solver child = new Solver( solver );
+                child.placeBranch( solver.branches[t], 0 );
+                state = child.updateAllWhilePoss();
+                if( state == 2 ) {
+                    parts.add( child.entries() );
+                    return parts;
+                }
+                if( state == 1 )
+                    frontier.add( child );
+            }
+        }
+        for( Solver solver : frontier )
+            parts.add( solver.entries() );
+        return parts;
+    }
+    
+    /** 
+     * Recursively try all the branches given by pushBranches(). Each branch is tried in place, and
+     * every change it makes is undone using the trail before the next one is tried.
+     * Return 0 if board is invalid in all possibilities, 2 if board is solved.
+     */
+    int tryPossibilities() {
+        int first = branchTop;
+        int count = pushBranches();
+        if( count == 0 ) {                    // Some entry has no candidates left
+            conflict = levelsUpTo( depth );
+            return 0;
+        }
+        branchTop += count;
+        
+        trailing = true;
+        depth++;
+        if( stats != null && depth > stats.maxDepth )
+            stats.maxDepth = depth;
+        int mark = trailSize;                 // Everything after mark on the trail belongs to the possibility being tried
+        int lastQueueTail = queueTail;
+        long bit = levelBit( depth );
+        long failure = learning ? branchReason( first, count ) : 0;    // Levels behind the failures so far, when learning
+        boolean jumped = false;
+        int result = 0;
+        for( int t = first; t < first + count; t++ ) {
+            if( solution != null && solution.get() != null )    // Another task of solveParallel has solved the board
+                break;
+            if( limitReached() || (nodeLimit > 0 && attemptNodes >= nodeLimit) ) {   // Give up, or give up this attempt, see searchWithRestarts
+                stopped = true;
+                break;
+            }
+            
+            int c = branches[t];
+            int state = 0;
+            if( learning )
+                decisions[depth] = c;
+            if( !learning || !pruned( c, bit ) ) {
+                placeBranch( c, bit );
+                attemptNodes++;
+                long nodes = sharedNodes == null ? ++searchNodes : sharedNodes.incrementAndGet();
+                if( nodes % PROGRESS_INTERVAL == 0 && progress != null )
+                    progress.update( nodes, depth );
+                if( stats != null )
+                    stats.searchNodes++;
+                
+                conflict = levelsUpTo( depth );   // Unless fail() finds out more
+                state = updateAllWhilePoss();
+                
+                if( state == 2 && solutionLimit > 0 ) {
+                    state = foundSolution();      // When counting solutions, keep searching until the limit is reached
+                } else if( state == 1 ) {
+                    state = tryPossibilities();   // If board not solved and not invalid, recursively apply tryPossibilities
+                }
+            }
+            
+            if( state == 2 ) {
+                result = 2;
+                break;
+            }
+            
+            undo( mark );
+            if( stats != null )
+                stats.backtracks++;
+            queueHead = lastQueueTail;
+            queueTail = lastQueueTail;
+            invalid = false;
+            
+            if( learning && !stopped && !gaveUp ) {
+                if( (conflict & bit) == 0 ) {     // The failure does not depend on this level, so neither do the other branches
+                    failure = conflict;
+                    jumped = true;
+                    if( stats != null )
+                        stats.backjumps++;
+                    break;
+                }
+                failure |= conflict;
+            }
+        }
+        
+        if( learning && result == 0 && !stopped && !gaveUp ) {   // Learn only from a level that was searched to the end
+            if( !jumped ) {                   // Every branch failed, so the levels behind the failures rule out this state
+                if( depth <= 64 )
+                    failure &= ~bit;
+                learn( failure );
+            }
+            conflict = failure;
+        }
+        branchTop = first;
+        depth--;
+        return result;
+    }
+    
+    // The bit standing for level d (at least 1) of tryPossibilities in reasons and conflicts, levels from 64 on share one
+    private static long levelBit( int d ) {
+        return 1L << Math.min( d - 1, 63 );
+    }
+    
+    // The bits of levels 1,...,d
+    private static long levelsUpTo( int d ) {
+        return d >= 64 ? -1L : (1L << d) - 1;
+    }
+    
+    /**
+     * Returns true if placing branch c would complete a learned nogood, setting conflict to the
+     * levels behind the placements it is made of.
+     */
+    private boolean pruned( int c, long bit ) {
+        int slot = nogoods.find( c, cells );
+        if( slot == -1 )
+            return false;
+        conflict = bit;
+        for( int p = 0; p < nogoods.size(slot); p++ ) {
+            int d = nogoods.placement( slot, p );
+            if( d != c )
+                conflict |= placeReasons[d / n2];
+        }
+        if( stats != null )
+            stats.nogoodPrunes++;
+        return true;
+    }
+    
+    // Record the decisions at the levels in failure, above the current level, as a nogood
+    private void learn( long failure ) {
+        int size = 0;
+        for( int d = 1; d < depth; d++ ) {
+            if( (failure & levelBit(d)) == 0 )
+                continue;
+            if( size == nogood.length )
+                return;
+            nogood[size++] = decisions[d];
+        }
+        if( nogoods.add( nogood, size ) && stats != null )
+            stats.nogoods++;
+    }
+    
+    /**
+     * Levels which removed the placements of the entry (or of the number in a row or column) that
+     * branches first,...,first + count - 1 are for, and which are not among the branches.
+     */
+    private long branchReason( int first, int count ) {
+        int c0 = branches[first];
+        int k = c0 % n2;
+        int j = (c0 / n2) % n2;
+        int i = c0 / n2 / n2;
+        if( count == 1 || branches[first + 1] / n2 == c0 / n2 )
+            return cellReason( i, j );
+        if( branches[first + 1] / n2 / n2 == i )
+            return unitReason( i, k );
+        return unitReason( n2 + j, k );
+    }
+    
+    // Levels which removed the candidates missing from entry (i,j)
+    private long cellReason( int i, int j ) {
+        long why = 0;
+        int off = cell(i, j);
+        for( int k = 0; k < n2; k++ )
+            if( !Bits.contains( candidates, off, k ) )
+                why |= reasons[(i * n2 + j) * n2 + k];
+        return why;
+    }
+    
+    // Levels which removed k + 1 from the entries of unit u (see unitRow) which no longer have it
+    private long unitReason( int u, int k ) {
+        long why = 0;
+        for( int p = 0; p < n2; p++ ) {
+            int i = unitRow(u, p);
+            int j = unitCol(u, p);
+            if( !Bits.contains( candidates, cell(i, j), k ) )
+                why |= reasons[(i * n2 + j) * n2 + k];
+        }
+        return why;
+    }
+    
+    // Levels which placed the entries conflicting with k + 1 in entry (i,j), or removed it from there
+    private long knownConflict( int i, int j, int k ) {
+        long why = placeReasons[i * n2 + j];
+        if( !Bits.contains( candidates, cell(i, j), k ) )
+            why |= reasons[(i * n2 + j) * n2 + k];
+        for( int s = 0; s < n2; s++ ) {
+            if( s != j && cells[i * n2 + s] == k + 1 )
+                why |= placeReasons[i * n2 + s];
+            if( s != i && cells[s * n2 + j] == k + 1 )
+                why |= placeReasons[s * n2 + j];
+            int r = (i / n) * n + s / n;
+            int q = (j / n) * n + s % n;
+            if( (r != i || q != j) && cells[r * n2 + q] == k + 1 )
+                why |= placeReasons[r * n2 + q];
+        }
+        return why;
+    }
+    
+    // Mark the board invalid, with the levels in why behind it if it was valid until now
+    private void fail( long why ) {
+        if( !invalid )
+            conflict = why;
+        invalid = true;
+    }
+    
+    /**
+     * Undo every change recorded on the trail after mark. The board was fully propagated when mark
+     * was taken, so the rules had nothing left to do then, and they are marked as having seen
+     * every change.
+     */
+    private void undo( int mark ) {
+        while( trailSize > mark ) {
+            int event = trail[--trailSize];
+            int flags = event & 3;
+            int type = (event >>> 2) & 3;
+            int c = event >>> 4;              // Equal to (i*n2 + j)*n2 + k
+            int k = c % n2;
+            int j = (c / n2) % n2;
+            int i = c / n2 / n2;
+            
+            if( type == PLACED ) {
+                cells[i * n2 + j] = -1;
+                unknowns++;
+            } else if( type == KNOWN ) {
+                Bits.remove( row, i * w, k );
+                Bits.remove( col, j * w, k );
+                Bits.remove( block, blockIndex(i / n, j / n) * w, k );
+            } else {                          // REMOVED, flags record which block possibility sets lost an element
+                Bits.add( candidates, cell(i, j), k );
+                Bits.add( rowPoss, unit(i, k), j );
+                Bits.add( colPoss, unit(j, k), i );
+                totalPoss += 3;
+                int blockOff = unit( blockIndex(i / n, j / n), k );
+                if( (flags & 1) != 0 ) {
+                    Bits.add( blockPossRow, blockOff, i );
+                    totalPoss++;
+                }
+                if( (flags & 2) != 0 ) {
+                    Bits.add( blockPossCol, blockOff, j );
+                    totalPoss++;
+                }
+            }
+        }
+        
+        for( Rule r : ALL_RULES ) {
+            int[] changes = r.byUnit() ? unitChanges : numberChanges;
+            System.arraycopy( changes, 0, seen[r.ordinal()], 0, changes.length );
+        }
+    }
+    
+    // Record a change on the trail, if a possibility is being tried
+    private void record( int type, int i, int j, int k, int flags ) {
+        if( !trailing )
+            return;
+        if( trailSize == trail.length )
+            trail = Arrays.copyOf( trail, 2 * trail.length );
+        trail[trailSize++] = (((i * n2 + j) * n2 + k) << 4) | (type << 2) | flags;
+    }
+    
+    /** 
+     * Run updateAll() as long as the board is valid, unknowns > 0, and progress can be made without
+     * trial and error. Returns 0 if board becomes invalid, 1 if no progress can be made but unknowns > 0,
+     * and 2 if board has been solved.
+     */
+    int updateAllWhilePoss() {
+        if( !updateKnowns() )                   // Entries placed by init() may be waiting even when none are unknown
+            return 0;
+        int lastTotalPoss = totalPoss + 1;
+
+        while ( lastTotalPoss > totalPoss && unknowns > 0 ) {
+            lastTotalPoss = totalPoss;
+            if( limitReached() ) {              // Not a conflict, so nothing must be learned from it
+                stopped = true;
+                return 0;
+            }
+            if( !updateAll() )
+                return 0;
+        }
+
+        if( unknowns > 0 )
+            return 1; 
+    
+        return 2;
+    }
+    
+    /**
+     * Propagate the known entries, then apply the rules in order (see setRuleOrder) until one of
+     * them makes progress. Returns false if board becomes invalid. Entries placed on the board are
+     * propagated to their peers as soon as they are found, and the rules only revisit the numbers
+     * (or units) whose candidates changed since they last ran.
+     */
+    boolean updateAll() {
+        if( stats != null )
+            stats.passes++;
+        
+        if( !updateKnowns() )
+            return false;
+        
+        boolean adaptive = ruleOrder == RuleOrder.ADAPTIVE;
+        if( adaptive )
+            reschedule();
+        for( Rule r : schedule ) {
+            int lastTotalPoss = totalPoss;
+            rule = SolveStats.index( r );
+            if( learning )                     // Rules may depend on any decision taken so far
+                reason = levelsUpTo( depth );
+            long start = adaptive ? System.nanoTime() : 0;
+            r.apply( this );
+            if( adaptive )
+                measure( r, System.nanoTime() - start, lastTotalPoss - totalPoss );
+            if( totalPoss < lastTotalPoss && stats != null )
+                stats.hits[rule]++;
+            rule = SolveStats.KNOWNS;
+            if( !updateKnowns() )
+                return false;
+            if( totalPoss < lastTotalPoss )    // Start again from the first rule in the next pass
+                return true;
+        }
+        return true;
+    }
+    
+    // Add a run of rule r, which took nanos and removed the given number of possibilities, to its figures
+    private void measure( Rule r, long nanos, int removed ) {
+        int o = r.ordinal();
+        ruleNanos[o] += nanos;
+        ruleYields[o] += removed;
+        if( ++ruleRuns[o] == RULE_HALF_LIFE ) {    // Halve the figures, so that recent runs count most
+            ruleRuns[o] = 0;
+            ruleNanos[o] /= 2;
+            ruleYields[o] /= 2;
+        }
+    }
+    
+    // Sort schedule by the time each rule has taken per possibility removed, cheapest first
+    private void reschedule() {
+        for( int t = 1; t < schedule.length; t++ ) {    // Insertion sort, as the order seldom changes
+            Rule r = schedule[t];
+            double cost = ruleCost( r );
+            int s = t;
+            for( ; s > 0 && ruleCost( schedule[s - 1] ) > cost; s-- )
+                schedule[s] = schedule[s - 1];
+            schedule[s] = r;
+        }
+    }
+    
+    // Time per possibility removed by rule r so far, the time alone while it has removed none
+    private double ruleCost( Rule r ) {
+        return ruleNanos[r.ordinal()] / (ruleYields[r.ordinal()] + 1.0);
+    }
+    
+    // Place number v in entry (i,j), to be propagated by updateKnowns(). The levels in why are behind it.
+    private void place( int i, int j, int v, long why ) {
+        int c = i * n2 + j;
+        if( cells[c] == -1 ) {
+            cells[c] = v;
+            if( learning )
+                placeReasons[c] = why;
+            unknowns--;
+            record( PLACED, i, j, v - 1, 0 );
+            queue[queueTail++] = c;
+        } else if( cells[c] != v ) {       // Entry is forced to take two different numbers
+            fail( learning ? placeReasons[c] | why : 0 );
+        }
+    }
+    
+    /**
+     * Add the entries placed since the last call to the knowns (row, col, block) sets and remove
+     * them from the candidates of their peers. Returns false if board is not valid sudoku
+     */
+    boolean updateKnowns() {
+        while( queueHead < queueTail && !invalid ) {
+            int c = queue[queueHead++];
+            int i = c / n2;
+            int j = c % n2;
+            int k = cells[c] - 1;
+            int off = cell(i, j);
+            
+            int blockOff = blockIndex(i / n, j / n) * w;
+            if( Bits.contains( row, i * w, k ) || Bits.contains( col, j * w, k )
+                    || Bits.contains( block, blockOff, k )          // Entry must not be known in its row, column or block,
+                    || !Bits.contains( candidates, off, k ) ) {     // and must still be a candidate
+                fail( learning ? knownConflict( i, j, k ) : 0 );
+                break;
+            }
+            if( learning )
+                reason = placeReasons[c];
+            Bits.add( row, i * w, k );
+            Bits.add( col, j * w, k );
+            Bits.add( block, blockOff, k );
+            record( KNOWN, i, j, k, 0 );
+            
+            for( int t = Bits.lowest( candidates, off, w ); t != -1; t = Bits.next( candidates, off, w, t + 1 ) ) {
+                if( t != k )
+                    removeCandidate( i, j, t );
+            }
+            
+            // The possibility sets index where k + 1 may still go, so only those entries are visited
+            int rowOff = unit(i, k);
+            for( int s = Bits.lowest( rowPoss, rowOff, w ); s != -1; s = Bits.next( rowPoss, rowOff, w, s + 1 ) ) {
+                if( s != j )
+                    removeCandidate( i, s, k );
+            }
+            int colOff = unit(j, k);
+            for( int r = Bits.lowest( colPoss, colOff, w ); r != -1; r = Bits.next( colPoss, colOff, w, r + 1 ) ) {
+                if( r != i )
+                    removeCandidate( r, j, k );
+            }
+            int blockPossOff = unit( blockIndex(i / n, j / n), k );
+            for( int r = Bits.lowest( blockPossRow, blockPossOff, w ); r != -1; r = Bits.next( blockPossRow, blockPossOff, w, r + 1 ) ) {
+                for( int s = Bits.lowest( blockPossCol, blockPossOff, w ); s != -1 && r != i; s = Bits.next( blockPossCol, blockPossOff, w, s + 1 ) ) {
+                    if( s != j )
+                        removeCandidate( r, s, k );
+                }
+            }
+        }
+        
+        return !invalid;
+    }
+    
+    /**
+     * Remove number k + 1 from the candidates of entry (i,j), and update the possibility sets
+     * and totalPoss to match. Entries which are determined as a result are placed on the board.
+     */
+    private void removeCandidate( int i, int j, int k ) {
+        int off = cell(i, j);
+        if( !Bits.remove( candidates, off, k ) )
+            return;
+        if( learning )
+            reasons[(i * n2 + j) * n2 + k] = reason;
+        totalPoss--;
+        if( stats != null )
+            stats.eliminations[rule]++;
+        
+        int size = Bits.count( candidates, off, w );
+        if( size == 0 )
+            fail( learning ? cellReason( i, j ) : 0 );
+        else if( size == 1 )
+            place( i, j, Bits.lowest( candidates, off, w ) + 1, learning ? cellReason( i, j ) : 0 );
+        
+        int rowOff = unit(i, k);                       // Column j can no longer contain k + 1 in row i
+        Bits.remove( rowPoss, rowOff, j );
+        totalPoss--;
+        size = Bits.count( rowPoss, rowOff, w );
+        if( size == 0 )
+            fail( learning ? unitReason( i, k ) : 0 );
+        else if( size == 1 )
+            place( i, Bits.lowest( rowPoss, rowOff, w ), k + 1, learning ? unitReason( i, k ) : 0 );
+        
+        int colOff = unit(j, k);                       // Row i can no longer contain k + 1 in column j
+        Bits.remove( colPoss, colOff, i );
+        totalPoss--;
+        size = Bits.count( colPoss, colOff, w );
+        if( size == 0 )
+            fail( learning ? unitReason( n2 + j, k ) : 0 );
+        else if( size == 1 )
+            place( Bits.lowest( colPoss, colOff, w ), j, k + 1, learning ? unitReason( n2 + j, k ) : 0 );
+        
+        int a = i / n;
+        int b = j / n;
+        int blockOff = unit( blockIndex(a, b), k );
+        int flags = 0;
+        if( !blockRowContains( i, b, k ) ) {           // Row i no longer contains k + 1 within block (a,b)
+            Bits.remove( blockPossRow, blockOff, i );
+            totalPoss--;
+            flags |= 1;
+        }
+        if( !blockColContains( a, j, k ) ) {           // Column j no longer contains k + 1 within block (a,b)
+            Bits.remove( blockPossCol, blockOff, j );
+            totalPoss--;
+            flags |= 2;
+        }
+        numberChanges[k]++;
+        unitChanges[i]++;
+        unitChanges[n2 + j]++;
+        unitChanges[2 * n2 + blockIndex(a, b)]++;
+        record( REMOVED, i, j, k, flags );
+        if( flags != 0 ) {
+            int rows = Bits.count( blockPossRow, blockOff, w );
+            long why = learning ? unitReason( 2 * n2 + blockIndex(a, b), k ) : 0;
+            if( rows == 0 )
+                fail( why );
+            else if( rows == 1 && Bits.count( blockPossCol, blockOff, w ) == 1 )
+                place( Bits.lowest( blockPossRow, blockOff, w ), Bits.lowest( blockPossCol, blockOff, w ), k + 1, why );
+        }
+    }
+    
+    // Returns true if some entry of row i within block column b has k + 1 as a candidate
+    private boolean blockRowContains( int i, int b, int k ) {
+        return Bits.containsAny( rowPoss, unit(i, k), b * n, (b + 1) * n );    // Read off rowPoss rather than visiting n entries
+    }
+    
+    // Returns true if some entry of column j within block row a has k + 1 as a candidate
+    private boolean blockColContains( int a, int j, int k ) {
+        return Bits.containsAny( colPoss, unit(j, k), a * n, (a + 1) * n );
+    }
+    
+    /**
+     * Choose what to branch on, as set by setBranching, and push the branches onto the branches
+     * stack at branchTop, in the order they should be tried. Each branch places a number in an
+     * entry, and between them they cover every solution. Returns the number of branches, 0 if
+     * there is nothing to branch on.
+     */
+    private int pushBranches() {
+        int best = -1;                        // Entry (as i*n2 + j) with the fewest candidates
+        int bestSize = n2 + 1;
+        int bestDegree = -1;
+        int ties = 0;
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                int size = Bits.count( candidates, cell(i, j), w );
+                if( size <= 1 || size > bestSize || (size == bestSize && branching == Branching.SMALLEST && random == null) )
+                    continue;
+                int degree = branching == Branching.SMALLEST ? 0 : degree( i, j );
+                if( size < bestSize || degree > bestDegree ) {
+                    ties = 1;
+                } else if( degree < bestDegree || random == null || random.nextInt( ++ties ) != 0 ) {
+                    continue;                 // Equal entries are kept with equal chance when restarting
+                }
+                best = i * n2 + j;
+                bestSize = size;
+                bestDegree = degree;
+            }
+        }
+        
+        int unitPoss = -1;                    // Offset in rowPoss (or colPoss, if unitPossCol) of a smaller set of places
+        boolean unitPossCol = false;
+        if( branching == Branching.POSITIONS ) {
+            for( int u = 0; u < n2 * n2; u++ ) {
+                int size = Bits.count( rowPoss, u * w, w );
+                if( size > 1 && size < bestSize ) {
+                    unitPoss = u * w;
+                    unitPossCol = false;
+                    bestSize = size;
+                }
+                size = Bits.count( colPoss, u * w, w );
+                if( size > 1 && size < bestSize ) {
+                    unitPoss = u * w;
+                    unitPossCol = true;
+                    bestSize = size;
+                }
+            }
+        }
+        
+        if( branchTop + n2 > branches.length ) {
+            branches = Arrays.copyOf( branches, 2 * branches.length );
+            scores = Arrays.copyOf( scores, 2 * scores.length );
+        }
+        int top = branchTop;
+        if( unitPoss != -1 ) {                // Number k + 1 goes in one of the places of line u
+            int u = unitPoss / w / n2;
+            int k = unitPoss / w % n2;
+            long[] poss = unitPossCol ? colPoss : rowPoss;
+            for( int p = Bits.lowest( poss, unitPoss, w ); p != -1; p = Bits.next( poss, unitPoss, w, p + 1 ) )
+                branches[top++] = unitPossCol ? (p * n2 + u) * n2 + k : (u * n2 + p) * n2 + k;
+        } else if( best != -1 ) {             // Entry best takes one of its candidates
+            int off = best * w;
+            for( int k = Bits.lowest( candidates, off, w ); k != -1; k = Bits.next( candidates, off, w, k + 1 ) )
+                branches[top++] = best * n2 + k;
+        }
+        
+        int count = top - branchTop;
+        if( random != null ) {                // Shuffle, so that the sort leaves ties in random order
+            for( int t = count - 1; t > 0; t-- ) {
+                int s = branchTop + random.nextInt( t + 1 );
+                int tmp = branches[branchTop + t];
+                branches[branchTop + t] = branches[s];
+                branches[s] = tmp;
+            }
+        }
+        if( valueOrder == ValueOrder.LEAST_CONSTRAINING ) {
+            for( int t = branchTop; t < top; t++ ) {     // Insertion sort, stable and quick for so few branches
+                int c = branches[t];
+                int score = constrained( c );
+                int s = t;
+                for( ; s > branchTop && scores[s - 1] > score; s-- ) {
+                    branches[s] = branches[s - 1];
+                    scores[s] = scores[s - 1];
+                }
+                branches[s] = c;
+                scores[s] = score;
+            }
+        }
+        return count;
+    }
+    
+    // Number of unknown entries in the row, column and block of entry (i,j), the entry itself counted in each
+    private int degree( int i, int j ) {
+        return 3 * n2 - Bits.count( row, i * w, w ) - Bits.count( col, j * w, w )
+                - Bits.count( block, blockIndex(i / n, j / n) * w, w );
+    }
+    
+    // Number of entries which might contain k + 1 in the row, column and block of branch c (see branches)
+    private int constrained( int c ) {
+        int k = c % n2;
+        int j = (c / n2) % n2;
+        int i = c / n2 / n2;
+        int count = Bits.count( rowPoss, unit(i, k), w ) + Bits.count( colPoss, unit(j, k), w );
+        int r0 = (i / n) * n;
+        int s0 = (j / n) * n;
+        for( int r = r0; r < r0 + n; r++ )
+            for( int s = s0; s < s0 + n; s++ )
+                if( Bits.contains( candidates, cell(r, s), k ) )
+                    count++;
+        return count;
+    }
+    
+    // Place the number of branch c (see branches) in its entry, the levels in why being behind it
+    private void placeBranch( int c, long why ) {
+        int k = c % n2;
+        place( c / n2 / n2, (c / n2) % n2, k + 1, why );
+    }
+    
+    // Build rowPoss, colPoss and blockPoss sets using candidate sets
+    private void buildPossViaCandidates() {
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                int off = cell(i, j);
+                int b = blockIndex(i / n, j / n);
+                for( int k = Bits.lowest( candidates, off, w ); k != -1; k = Bits.next( candidates, off, w, k + 1 ) ) {
+                    Bits.add( rowPoss, unit(i, k), j );
+                    Bits.add( colPoss, unit(j, k), i );
+                    Bits.add( blockPossRow, unit(b, k), i );
+                    Bits.add( blockPossCol, unit(b, k), j );
+                }
+            }
+        }
+    }
+    
+    // Pointing: if number k + 1 lies in a single row (or column) of a block, remove it from that row (or column) outside the block
+    void updatePointing() {
+        int[] seen = this.seen[Rule.POINTING.ordinal()];
+        for( int k = 0; k < n2 && !invalid; k++ ) {
+            if( seen[k] == numberChanges[k] )
+                continue;
+            seen[k] = numberChanges[k];
+            for( int a = 0; a < n; a++ ) {
+                for( int b = 0; b < n; b++ ) {
+                    int off = unit( blockIndex(a, b), k );
+                    if( Bits.count( blockPossRow, off, w ) == 1 ) {
+                        int i = Bits.lowest( blockPossRow, off, w );
+                        int rowOff = unit(i, k);               // Visit only the columns of row i which still might hold k + 1
+                        for( int s = Bits.lowest( rowPoss, rowOff, w ); s != -1; s = Bits.next( rowPoss, rowOff, w, s + 1 ) ) {
+                            if( s / n != b )
+                                removeCandidate( i, s, k );
+                        }
+                    }
+                    if( Bits.count( blockPossCol, off, w ) == 1 ) {
+                        int j = Bits.lowest( blockPossCol, off, w );
+                        int colOff = unit(j, k);
+                        for( int r = Bits.lowest( colPoss, colOff, w ); r != -1; r = Bits.next( colPoss, colOff, w, r + 1 ) ) {
+                            if( r / n != a )
+                                removeCandidate( r, j, k );
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    // Box/line reduction: if number k + 1 lies in a single block of a row (or column), remove it from the rest of that block
+    void updateBoxLine() {
+        int[] seen = this.seen[Rule.BOX_LINE.ordinal()];
+        for( int k = 0; k < n2 && !invalid; k++ ) {
+            if( seen[k] == numberChanges[k] )
+                continue;
+            seen[k] = numberChanges[k];
+            for( int i = 0; i < n2; i++ ) {
+                int rowOff = unit(i, k);
+                if( Bits.count( rowPoss, rowOff, w ) > n )    // Too many columns to fit in one block
+                    continue;
+                int first = Bits.lowest( rowPoss, rowOff, w );
+                if( first == -1 )
+                    continue;
+                int only = first / n;                   // The only block column in which row i might contain k + 1, unless a later column is outside it
+                if( (only + 1) * n < n2 && Bits.containsAny( rowPoss, rowOff, (only + 1) * n, n2 ) )
+                    continue;
+                int a = i / n;
+                int off = unit( blockIndex(a, only), k );
+                for( int r = a * n; r < (a + 1) * n; r++ ) {
+                    if( r != i && Bits.contains( blockPossRow, off, r ) )
+                        removeFromRow( r, only * n, (only + 1) * n, k );
+                }
+            }
+            for( int j = 0; j < n2; j++ ) {
+                int colOff = unit(j, k);
+                if( Bits.count( colPoss, colOff, w ) > n )
+                    continue;
+                int first = Bits.lowest( colPoss, colOff, w );
+                if( first == -1 )
+                    continue;
+                int only = first / n;                   // The only block row in which column j might contain k + 1, unless a later row is outside it
+                if( (only + 1) * n < n2 && Bits.containsAny( colPoss, colOff, (only + 1) * n, n2 ) )
+                    continue;
+                int b = j / n;
+                int off = unit( blockIndex(only, b), k );
+                for( int s = b * n; s < (b + 1) * n; s++ ) {
+                    if( s != j && Bits.contains( blockPossCol, off, s ) )
+                        removeFromCol( s, only * n, (only + 1) * n, k );
+                }
+            }
+        }
+    }
+    
+    // Remove k + 1 from the entries of row i in columns from,...,to - 1, visiting only those which have it
+    private void removeFromRow( int i, int from, int to, int k ) {
+        int rowOff = unit(i, k);
+        for( int s = Bits.next( rowPoss, rowOff, w, from ); s != -1 && s < to; s = Bits.next( rowPoss, rowOff, w, s + 1 ) )
+            removeCandidate( i, s, k );
+    }
+    
+    // Remove k + 1 from the entries of column j in rows from,...,to - 1, visiting only those which have it
+    private void removeFromCol( int j, int from, int to, int k ) {
+        int colOff = unit(j, k);
+        for( int r = Bits.next( colPoss, colOff, w, from ); r != -1 && r < to; r = Bits.next( colPoss, colOff, w, r + 1 ) )
+            removeCandidate( r, j, k );
+    }
+    
+    /**
+     * Fish of up to size rows: if number k + 1 can only lie in the same m columns in m rows, it is
+     * removed from those columns in the other rows; similarly with rows and columns swapped.
+     * Size 2 is the X-Wing, 3 the Swordfish and 4 the Jellyfish.
+     */
+    void updateFish( Rule fish, int size ) {
+        int[] seen = this.seen[fish.ordinal()];
+        for( int k = 0; k < n2 && !invalid; k++ ) {
+            if( seen[k] == numberChanges[k] )
+                continue;
+            seen[k] = numberChanges[k];
+            findSubsets( ROWS, 0, k, gatherPoss( rowPoss, unit(0, k), n2 * w, n2, size ), size );
+            if( !invalid )
+                findSubsets( COLS, 0, k, gatherPoss( colPoss, unit(0, k), n2 * w, n2, size ), size );
+        }
+    }
+    
+    // Naked subsets: m entries of a unit whose candidates together are m numbers rule those numbers out of the rest of the unit
+    void updateNakedSubsets() {
+        int[] seen = this.seen[Rule.NAKED_SUBSETS.ordinal()];
+        for( int u = 0; u < 3 * n2 && !invalid; u++ ) {
+            if( seen[u] == unitChanges[u] )
+                continue;
+            seen[u] = unitChanges[u];
+            int count = 0;
+            for( int p = 0; p < n2; p++ ) {             // Candidate sets of the entries of the unit
+                int off = cell( unitRow(u, p), unitCol(u, p) );
+                int size = Bits.count( candidates, off, w );
+                if( size > 1 && size <= maxSubsetSize ) {
+                    Bits.copy( candidates, off, keys, count * w, w );
+                    members[count++] = p;
+                }
+            }
+            findSubsets( NAKED, u, 0, count, maxSubsetSize );
+        }
+    }
+    
+    // Hidden subsets: m numbers which together fit in only m entries of a unit rule every other number out of those entries
+    void updateHiddenSubsets() {
+        int[] seen = this.seen[Rule.HIDDEN_SUBSETS.ordinal()];
+        for( int u = 0; u < 3 * n2 && !invalid; u++ ) {
+            if( seen[u] == unitChanges[u] )
+                continue;
+            seen[u] = unitChanges[u];
+            int count;
+            if( u < 2 * n2 ) {                          // In a row or column the positions of k + 1 are its rowPoss or colPoss set
+                count = gatherPoss( u < n2 ? rowPoss : colPoss, unit(u % n2, 0), w, n2, maxSubsetSize );
+            } else {
+                Bits.clear( keys, 0, n2 * w );
+                for( int p = 0; p < n2; p++ ) {         // keys[k] is the set of positions in the block which might contain k + 1
+                    int off = cell( unitRow(u, p), unitCol(u, p) );
+                    for( int k = Bits.lowest( candidates, off, w ); k != -1; k = Bits.next( candidates, off, w, k + 1 ) )
+                        Bits.add( keys, k * w, p );
+                }
+                count = 0;
+                for( int k = 0; k < n2; k++ ) {         // Keep the sets of numbers not yet known in the block
+                    int size = Bits.count( keys, k * w, w );
+                    if( size > 1 && size <= maxSubsetSize ) {
+                        Bits.copy( keys, k * w, keys, count * w, w );
+                        members[count++] = k;
+                    }
+                }
+            }
+            findSubsets( HIDDEN, u, 0, count, maxSubsetSize );
+        }
+    }
+    
+    /**
+     * Copy the sets of poss at offsets first + m*step for m = 0,...,count - 1 with between 2 and
+     * maxSize elements into keys, for findSubsets. Returns the number of sets copied. Sets with a
+     * single element belong to numbers which are already placed.
+     */
+    private int gatherPoss( long[] poss, int first, int step, int count, int maxSize ) {
+        int numKeys = 0;
+        for( int m = 0; m < count; m++ ) {
+            int off = first + m*step;
+            int size = Bits.count( poss, off, w );
+            if( size > 1 && size <= maxSize ) {
+                Bits.copy( poss, off, keys, numKeys * w, w );
+                members[numKeys++] = m;
+            }
+        }
+        return numKeys;
+    }
+    
+    /**
+     * Find the groups of up to maxSize of the sets keys[0],...,keys[count - 1] whose union has as
+     * many elements as the group has sets. Each set needs an element of its own, so such a group
+     * uses up its union, which eliminateSubset then removes everywhere else. If the union of a
+     * group is smaller than the group, the board is invalid. The sets belong to unit u and number
+     * k + 1 as described by kind.
+     */
+    private void findSubsets( int kind, int u, int k, int count, int maxSize ) {
+        groupLimit = maxSize;
+        Bits.clear( unions, 0, w );
+        extendSubsets( kind, u, k, count, 0, 0 );
+    }
+    
+    // Extend the depth sets already chosen by each of keys[first],...,keys[count - 1] in turn
+    private void extendSubsets( int kind, int u, int k, int count, int first, int depth ) {
+        int off = depth * w;
+        for( int t = first; t < count && !invalid; t++ ) {
+            int size = Bits.union( unions, off, keys, t * w, unions, off + w, w );
+            if( size > groupLimit )                     // Adding more sets can only make the union bigger
+                continue;
+            chosen[depth] = t;
+            if( size < depth + 1 )
+                invalid = true;
+            else if( size == depth + 1 )
+                eliminateSubset( kind, u, k, depth + 1 );
+            else if( depth + 1 < groupLimit )
+                extendSubsets( kind, u, k, count, t + 1, depth + 1 );
+        }
+    }
+    
+    // Remove the union of the size sets chosen by findSubsets from the other sets of their unit
+    private void eliminateSubset( int kind, int u, int k, int size ) {
+        int off = size * w;
+        if( kind == HIDDEN ) {                          // The entries of the union can only hold the chosen numbers
+            for( int p = Bits.lowest( unions, off, w ); p != -1; p = Bits.next( unions, off, w, p + 1 ) ) {
+                int i = unitRow(u, p);
+                int j = unitCol(u, p);
+                int c = cell(i, j);
+                int d = 0;                              // Chosen numbers come in increasing order, like the candidates
+                for( int e = Bits.lowest( candidates, c, w ); e != -1; e = Bits.next( candidates, c, w, e + 1 ) ) {
+                    while( d < size && members[chosen[d]] < e )
+                        d++;
+                    if( d == size || members[chosen[d]] != e )
+                        removeCandidate( i, j, e );
+                }
+            }
+            return;
+        }
+        
+        int d = 0;                                      // Next chosen set, in increasing order of index
+        for( int m = 0; m < n2 && !invalid; m++ ) {
+            if( d < size && members[chosen[d]] == m ) {
+                d++;
+                continue;
+            }
+            long[] sets;                                // The array and offset of set m
+            int setOff;
+            switch( kind ) {
+                case ROWS:
+                    sets = rowPoss;
+                    setOff = unit(m, k);
+                    break;
+                case COLS:
+                    sets = colPoss;
+                    setOff = unit(m, k);
+                    break;
+                default:
+                    sets = candidates;
+                    setOff = cell( unitRow(u, m), unitCol(u, m) );
+            }
+            if( !Bits.intersects( sets, setOff, unions, off, w ) )
+                continue;
+            for( int e = Bits.lowest( unions, off, w ); e != -1; e = Bits.next( unions, off, w, e + 1 ) ) {
+                if( Bits.contains( sets, setOff, e ) )
+                    removeViaUnit( kind, u, m, k, e );
+            }
+        }
+    }
+    
+    // Remove element e from set m of unit u (see findSubsets), by removing the corresponding candidates
+    private void removeViaUnit( int kind, int u, int m, int k, int e ) {
+        switch( kind ) {
+            case ROWS:                  // Column e of row m
+                removeCandidate( m, e, k );
+                break;
+            case COLS:                  // Row e of column m
+                removeCandidate( e, m, k );
+                break;
+            default:                    // Number e + 1 from position m of unit u
+                removeCandidate( unitRow(u, m), unitCol(u, m), e );
+        }
+    }
+    
+    // Prints sudoku nicely, entries padded to the width of the largest number and blocks ruled off
+    public void printBoard() {
+        int width = Math.max( 2, Integer.toString(n2).length() );   // Room for the widest number, or -1
+        String entry = "%" + width + "d ";
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                System.out.print( String.format( entry, cells[i * n2 + j] ) );
+                if( (j + 1) % n == 0 && j != n2 - 1 )
+                    System.out.print("| ");
+            }
+            System.out.println("");
+            if( (i + 1) % n == 0 && i != n2 - 1 ) {
+                for( int k = 0; k < (width + 1)*n2 + 2*(n-1) - 1; k++ )
+                    System.out.print("-");
+                System.out.println("");
+            }
+        }
+        System.out.println("");
+    }
+
+    // The board given as an array, or the entries in a new array if it was given as a Board
+    public int[][] getBoard() {
+        if( board != null )
+            return board;
+        return entries();
+    }
+    
+    // The current entries in a new array
+    private int[][] entries() {
+        int[][] entries = new int[n2][n2];
+        for( int i = 0; i < n2; i++ )
+            System.arraycopy( cells, i * n2, entries[i], 0, n2 );
+        return entries;
+    }
+
+    /**
+     * One subtree of the search in solveParallel. Above splitDepth every branch given by
+     * pushBranches() gets its own copy of the solver and its own task; at splitDepth the
+     * subtree is searched sequentially by tryPossibilities.
+     */
+    @SuppressWarnings("serial")
+    private static class SearchTask extends RecursiveAction {
+        private final Solver solver;      // Fully propagated solver for this subtree, owned by this task
+        private final int depth;
+        private final int splitDepth;
+        private final AtomicReference<int[]> solution;
+        private boolean gaveUp;           // True if the limits of the solve cut this subtree short
+        
+        SearchTask( Solver solver, int depth, int splitDepth, AtomicReference<int[]> solution ) {
+            this.solver = solver;
+            this.depth = depth;
+            this.splitDepth = splitDepth;
+            this.solution = solution;
+            solver.solution = solution;
+        }
+        
+        @Override
+        protected void compute() {
+            if( solution.get() != null )
+                return;
+            
+            if( depth >= splitDepth ) {
+                if( solver.tryPossibilities() == 2 )
+                    solution.compareAndSet( null, solver.cells );
+                gaveUp = solver.gaveUp;
+                return;
+            }
+            
+            int count = solver.pushBranches();
+            List<SearchTask> tasks = new ArrayList<>();
+            for( int t = 0; t < count; t++ ) {
+                Solver child = new Solver( solver );
+                child.placeBranch( solver.branches[t], 0 );
+                int state = child.updateAllWhilePoss();
+                if( state == 2 ) {
+                    solution.compareAndSet( null, child.cells );
+                    return;
+                }
+                if( state == 1 )
+                    tasks.add( new SearchTask( child, depth + 1, splitDepth, solution ) );
+                else if( child.gaveUp )
+                    gaveUp = true;
+            }
+            invokeAll( tasks );
+            for( SearchTask task : tasks )
+                gaveUp |= task.gaveUp;
+        }
+    }
+}
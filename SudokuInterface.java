@@ -36,11 +36,13 @@ public class SudokuInterface implements Runnable {
         createOutputPanel( output, container );
         
         JButton solve = new JButton("Solve");
+        JButton cancel = new JButton("Cancel");
         JButton reset = new JButton("Reset");
-        createButtonPanel( solve, reset, container );
+        createButtonPanel( solve, cancel, reset, container );
         
-        SolveListener listener = new SolveListener( board, output, solve, reset );
+        SolveListener listener = new SolveListener( board, output, solve, reset, cancel );
         solve.addActionListener( listener );
+        cancel.addActionListener( listener );
         reset.addActionListener( listener );
     }
     
@@ -75,10 +77,11 @@ public class SudokuInterface implements Runnable {
         container.add(output, c);
     }
     
-    private void createButtonPanel( JButton solve, JButton reset, Container container ) {
-        JPanel buttonPanel = new JPanel(new GridLayout(1,2));
+    private void createButtonPanel( JButton solve, JButton cancel, JButton reset, Container container ) {
+        JPanel buttonPanel = new JPanel(new GridLayout(1,3));
         buttonPanel.setPreferredSize(new Dimension(n2*30, 60));
         buttonPanel.add(solve);
+        buttonPanel.add(cancel);
         buttonPanel.add(reset);
         
         GridBagConstraints c = new GridBagConstraints();
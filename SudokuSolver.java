@@ -1,12 +1,249 @@
-
-package sudokusolver;
-
-import javax.swing.SwingUtilities;
-
-public class SudokuSolver {
-
-    public static void main(String[] args) {
-        SudokuInterface si = new SudokuInterface(4);
-        SwingUtilities.invokeLater(si); 
-    }
-}
+package sudokusolver;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.swing.SwingUtilities;
+
+public class SudokuSolver {
+
+    /**
+     * With no arguments, opens the GUI. With arguments
+     *     batch <input> <output> [threads] [--engine rules|dlx] [--stats] [--cache <size> [--cache-policy lru|lfu]]
+     * solves every puzzle in input (one puzzle per line, see PuzzleFormat) and writes the
+     * solutions to output in the same order, writing "invalid" for invalid puzzles. The engine
+     * defaults to rules (see Engine). With --stats, SolveStats are collected, exported over JMX
+     * while running and printed at the end. With --cache, a SolutionCache of the given size
+     * (LRU unless --cache-policy says otherwise) answers repeated and symmetric puzzles, and its
+     * metrics are exported and printed the same way. With arguments
+     *     generate <n> <count> <output> [threads] [--difficulty easy|medium|hard] [--seed s]
+     * writes count puzzles of block size n with unique solutions to output (see PuzzleGenerator).
+     * With arguments
+     *     serve <port> [threads] [--queue <size>] [--batch <size>] [--timeout <ms>]
+     * runs a SolveServer on port until killed, with room for 4096 puzzles in its queue, batches
+     * of up to 16 puzzles and a timeout of 10 s per puzzle unless told otherwise. With arguments
+     *     coordinate <port> <input> <output> [--parts <count>] [--workers <count>] [--timeout <ms>]
+     * solves the puzzles in input one at a time with a SolveCoordinator on port, splitting each
+     * into at least 64 subproblems (unless told otherwise) for the workers, starting once the
+     * given number of workers (1 by default) have connected. Solutions are written to output as
+     * with batch, and "timeout" for puzzles not solved in time (10 s unless told otherwise). With
+     * arguments
+     *     worker <host> <port> [threads]
+     * runs threads RemoteWorkers (one per processor by default) for the coordinator at host and
+     * port, until it closes.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, JMException {
+        if( args.length == 0 ) {
+            SudokuInterface si = new SudokuInterface(4);
+            SwingUtilities.invokeLater(si); 
+            return;
+        }
+        
+        List<String> positional = new ArrayList<>();
+        Engine engine = Engine.RULES;
+        Difficulty difficulty = Difficulty.HARD;
+        long seed = 0;
+        boolean stats = false;
+        int cacheSize = 0;
+        SolutionCache.Policy cachePolicy = SolutionCache.Policy.LRU;
+        int queueSize = 4096;
+        int batchSize = 16;
+        long timeout = 10_000;
+        int parts = 64;
+        int workers = 1;
+        for( int a = 0; a < args.length; a++ ) {
+            if( args[a].equals("--stats") )
+                stats = true;
+            else if( args[a].equals("--engine") && a + 1 < args.length )
+                engine = parseEngine( args[++a] );
+            else if( args[a].equals("--difficulty") && a + 1 < args.length )
+                difficulty = parseDifficulty( args[++a] );
+            else if( args[a].equals("--seed") && a + 1 < args.length )
+                seed = Long.parseLong( args[++a] );
+            else if( args[a].equals("--cache") && a + 1 < args.length )
+                cacheSize = Integer.parseInt( args[++a] );
+            else if( args[a].equals("--cache-policy") && a + 1 < args.length )
+                cachePolicy = parseCachePolicy( args[++a] );
+            else if( args[a].equals("--queue") && a + 1 < args.length )
+                queueSize = Integer.parseInt( args[++a] );
+            else if( args[a].equals("--batch") && a + 1 < args.length )
+                batchSize = Integer.parseInt( args[++a] );
+            else if( args[a].equals("--timeout") && a + 1 < args.length )
+                timeout = Long.parseLong( args[++a] );
+            else if( args[a].equals("--parts") && a + 1 < args.length )
+                parts = Integer.parseInt( args[++a] );
+            else if( args[a].equals("--workers") && a + 1 < args.length )
+                workers = Integer.parseInt( args[++a] );
+            else
+                positional.add( args[a] );
+        }
+        
+        int processors = Runtime.getRuntime().availableProcessors();
+        String command = positional.isEmpty() ? "" : positional.get(0);
+        if( engine != null && cachePolicy != null && command.equals("batch") && (positional.size() == 3 || positional.size() == 4) ) {
+            int threads = positional.size() == 4 ? Integer.parseInt( positional.get(3) ) : processors;
+            SolutionCache cache = cacheSize > 0 ? new SolutionCache( cacheSize, cachePolicy ) : null;
+            batch( positional.get(1), positional.get(2), threads, engine, stats, cache );
+        } else if( difficulty != null && command.equals("generate") && (positional.size() == 4 || positional.size() == 5) ) {
+            int threads = positional.size() == 5 ? Integer.parseInt( positional.get(4) ) : processors;
+            generate( Integer.parseInt( positional.get(1) ), Integer.parseInt( positional.get(2) ), positional.get(3),
+                    threads, difficulty, seed );
+        } else if( command.equals("serve") && (positional.size() == 2 || positional.size() == 3) ) {
+            int threads = positional.size() == 3 ? Integer.parseInt( positional.get(2) ) : processors;
+            SolveServer server = new SolveServer( Integer.parseInt( positional.get(1) ), threads, queueSize, batchSize,
+                    timeout, TimeUnit.MILLISECONDS );
+            server.registerMBean( "serve" );
+            server.start();
+            System.out.println( "Listening on port " + server.getPort() );
+        } else if( command.equals("coordinate") && positional.size() == 4 ) {
+            coordinate( Integer.parseInt( positional.get(1) ), positional.get(2), positional.get(3), parts, workers, timeout );
+        } else if( command.equals("worker") && (positional.size() == 3 || positional.size() == 4) ) {
+            int threads = positional.size() == 4 ? Integer.parseInt( positional.get(3) ) : processors;
+            work( positional.get(1), Integer.parseInt( positional.get(2) ), threads );
+        } else {
+            System.err.println("Usage: SudokuSolver [batch <input> <output> [threads] [--engine rules|dlx] [--stats] [--cache <size> [--cache-policy lru|lfu]]]");
+            System.err.println("       SudokuSolver [generate <n> <count> <output> [threads] [--difficulty easy|medium|hard] [--seed s]]");
+            System.err.println("       SudokuSolver [serve <port> [threads] [--queue <size>] [--batch <size>] [--timeout <ms>]]");
+            System.err.println("       SudokuSolver [coordinate <port> <input> <output> [--parts <count>] [--workers <count>] [--timeout <ms>]]");
+            System.err.println("       SudokuSolver [worker <host> <port> [threads]]");
+            System.exit(1);
+        }
+    }
+    
+    // Returns the difficulty called name, or null if there is none
+    private static Difficulty parseDifficulty( String name ) {
+        switch( name ) {
+            case "easy":
+                return Difficulty.EASY;
+            case "medium":
+                return Difficulty.MEDIUM;
+            case "hard":
+                return Difficulty.HARD;
+            default:
+                return null;
+        }
+    }
+    
+    private static void generate( int n, int count, String output, int threads, Difficulty difficulty, long seed )
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int[][][] puzzles = new PuzzleGenerator( n, seed ).generate( count, difficulty, threads );
+        try( PuzzleWriter writer = new PuzzleWriter( Paths.get(output) ) ) {
+            for( int[][] puzzle : puzzles )
+                writer.write( puzzle );
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println( String.format( "%d puzzles in %.3f s, %.1f puzzles/s", count, seconds, count / seconds ) );
+    }
+    
+    // Returns the cache policy called name, or null if there is none
+    private static SolutionCache.Policy parseCachePolicy( String name ) {
+        switch( name ) {
+            case "lru":
+                return SolutionCache.Policy.LRU;
+            case "lfu":
+                return SolutionCache.Policy.LFU;
+            default:
+                return null;
+        }
+    }
+    
+    // Returns the engine called name, or null if there is none
+    private static Engine parseEngine( String name ) {
+        switch( name ) {
+            case "rules":
+                return Engine.RULES;
+            case "dlx":
+                return Engine.DANCING_LINKS;
+            default:
+                return null;
+        }
+    }
+    
+    // Solves the puzzles in input one at a time with the workers of a SolveCoordinator
+    private static void coordinate( int port, String input, String output, int parts, int workers, long timeout )
+            throws IOException, InterruptedException {
+        try( SolveCoordinator coordinator = new SolveCoordinator( port, parts );
+                PuzzleReader reader = new PuzzleReader( Paths.get(input) );
+                PuzzleWriter writer = new PuzzleWriter( Paths.get(output) ) ) {
+            coordinator.start();
+            System.out.println( "Listening on port " + coordinator.getPort() + ", waiting for " + workers + " workers" );
+            coordinator.awaitWorkers( workers );
+            
+            long start = System.nanoTime();
+            int count = 0;
+            for( int n2 = reader.nextSideLength(); n2 != -1; n2 = reader.nextSideLength() ) {
+                int[][] board = new int[n2][n2];
+                reader.next( board );
+                switch( coordinator.solve( board, timeout, TimeUnit.MILLISECONDS ) ) {
+                    case SOLVED:
+                        writer.write( board );
+                        break;
+                    case INVALID:
+                        writer.writeInvalid();
+                        break;
+                    default:
+                        writer.writeTimeout();
+                }
+                count++;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println( String.format( "%d puzzles in %.3f s with %d workers", count, seconds, coordinator.getWorkers() ) );
+        }
+    }
+    
+    // Runs threads workers for the coordinator at host and port until it closes the connections
+    private static void work( String host, int port, int threads ) throws IOException, InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for( int t = 0; t < threads; t++ ) {
+            workers[t] = new Thread( new RemoteWorker( host, port ), "worker-" + t );
+            workers[t].start();
+        }
+        for( Thread worker : workers )
+            worker.join();
+    }
+    
+    // Solves the puzzles in input a block at a time, so that the whole file is never held in memory
+    private static void batch( String input, String output, int threads, Engine engine, boolean stats, SolutionCache cache )
+            throws IOException, InterruptedException, JMException {
+        int blockSize = 256 * threads;
+        int[][][] boards = new int[0][][];
+        boolean[] solved = new boolean[blockSize];
+        
+        try( PuzzleReader reader = new PuzzleReader( Paths.get(input) );
+                PuzzleWriter writer = new PuzzleWriter( Paths.get(output) );
+                BatchSolver solver = new BatchSolver( threads, engine, stats, cache ) ) {
+            if( stats )
+                solver.getStats().registerMBean( "batch" );
+            if( cache != null )
+                cache.registerMBean( "batch" );
+            
+            int n2 = reader.nextSideLength();
+            while( n2 != -1 ) {
+                if( boards.length == 0 || boards[0].length != n2 )    // Boards are reused until the puzzle size changes
+                    boards = new int[blockSize][n2][n2];
+                
+                int size = 0;
+                while( size < blockSize && reader.nextSideLength() == n2 )
+                    reader.next( boards[size++] );
+                
+                solver.solveAll( boards, size, solved );
+                for( int i = 0; i < size; i++ ) {
+                    if( solved[i] )
+                        writer.write( boards[i] );
+                    else
+                        writer.writeInvalid();
+                }
+                n2 = reader.nextSideLength();
+            }
+            System.out.println( solver.report() );
+            if( stats )
+                System.out.println( solver.getStats() );
+            if( cache != null )
+                System.out.println( cache );
+        }
+    }
+}
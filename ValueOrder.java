@@ -0,0 +1,12 @@
+package sudokusolver;
+
+/**
+ * The order in which Solver tries the branches it has chosen (see Solver.setValueOrder).
+ */
+public enum ValueOrder {
+    /** Numbers (or places, when branching on positions) in increasing order */
+    ASCENDING,
+
+    /** The placement which removes the number from the fewest other entries first */
+    LEAST_CONSTRAINING
+}
@@ -0,0 +1,22 @@
+package sudokusolver;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like the standard JMH main, taking the same options, but always
+ * with the GC profiler so that allocation rates are reported next to the timings.
+ */
+public class BenchmarkMain {
+
+    public static void main( String[] args ) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent( new CommandLineOptions(args) )
+                .addProfiler( GCProfiler.class )
+                .build();
+        new Runner( options ).run();
+    }
+}
@@ -0,0 +1,44 @@
+package sudokusolver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fixed puzzle sets used by the benchmarks, read from benchmarks/corpus:
+ * easy, hard and 17clue (9x9), 16x16 and 25x25.
+ */
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    // Returns the puzzles of the named corpus
+    static int[][][] load( String name ) {
+        String resource = "/corpus/" + name + ".txt";
+        try( InputStream in = Corpus.class.getResourceAsStream( resource ) ) {
+            if( in == null )
+                throw new IllegalArgumentException( "No corpus " + name );
+            List<int[][]> boards = new ArrayList<>();
+            BufferedReader reader = new BufferedReader( new InputStreamReader( in, StandardCharsets.US_ASCII ) );
+            for( String line = reader.readLine(); line != null; line = reader.readLine() ) {
+                if( !line.trim().isEmpty() )
+                    boards.add( PuzzleFormat.parse( line.trim() ) );
+            }
+            return boards.toArray( new int[0][][] );
+        } catch( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    // Copies puzzle into board, which must have the same size
+    static void copy( int[][] puzzle, int[][] board ) {
+        for( int i = 0; i < puzzle.length; i++ )
+            System.arraycopy( puzzle[i], 0, board[i], 0, puzzle.length );
+    }
+}
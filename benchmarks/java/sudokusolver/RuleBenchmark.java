@@ -0,0 +1,119 @@
+package sudokusolver;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The propagation rules and the search of Solver, each measured on its own. Every operation
+ * gets a fresh Solver for the next puzzle of the corpus, brought to the state the rule is
+ * normally applied in.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RuleBenchmark {
+
+    @State(Scope.Thread)
+    public static class Puzzles {
+        @Param({"easy", "hard", "17clue", "16x16", "25x25"})
+        public String corpus;
+
+        int[][][] puzzles;
+        int next;
+
+        @Setup
+        public void setup() {
+            puzzles = Corpus.load( corpus );
+        }
+
+        // A new Solver for the next puzzle, as init() leaves it
+        Solver nextSolver() {
+            int[][] puzzle = puzzles[next];
+            next = (next + 1) % puzzles.length;
+            int[][] board = new int[puzzle.length][puzzle.length];
+            Corpus.copy( puzzle, board );
+            return new Solver( board );
+        }
+    }
+
+    // A new Solver: init() has removed the givens from the candidates and placed the singles they
+    // force, which have not been propagated yet
+    @State(Scope.Thread)
+    public static class Initialized {
+        Solver solver;
+
+        @Setup(Level.Invocation)
+        public void setup( Puzzles puzzles ) {
+            solver = puzzles.nextSolver();
+        }
+    }
+
+    // A Solver whose knowns have been propagated, so the rules have work to do
+    @State(Scope.Thread)
+    public static class Propagated {
+        @Param({"POINTING", "BOX_LINE", "X_WING", "SWORDFISH", "JELLYFISH", "NAKED_SUBSETS", "HIDDEN_SUBSETS"})
+        public Rule rule;
+
+        Solver solver;
+
+        @Setup(Level.Invocation)
+        public void setup( Puzzles puzzles ) {
+            solver = puzzles.nextSolver();
+            solver.updateKnowns();
+        }
+    }
+
+    // A Solver on which propagation has stalled, so only search can continue
+    @State(Scope.Thread)
+    public static class Stalled {
+        @Param({"SMALLEST", "MRV_DEGREE", "POSITIONS"})
+        public Branching branching;
+
+        @Param({"ASCENDING", "LEAST_CONSTRAINING"})
+        public ValueOrder valueOrder;
+
+        Solver solver;
+
+        @Setup(Level.Invocation)
+        public void setup( Puzzles puzzles ) {
+            solver = puzzles.nextSolver();
+            solver.setBranching( branching );
+            solver.setValueOrder( valueOrder );
+            solver.updateAllWhilePoss();
+        }
+    }
+
+    @Benchmark
+    public boolean firstUpdateKnowns( Initialized state ) {
+        return state.solver.updateKnowns();
+    }
+
+    @Benchmark
+    public boolean firstUpdateAll( Initialized state ) {
+        return state.solver.updateAll();
+    }
+
+    @Benchmark
+    public Solver rule( Propagated state ) {
+        state.rule.apply( state.solver );
+        return state.solver;
+    }
+
+    @Benchmark
+    public int tryPossibilities( Stalled state ) {
+        return state.solver.tryPossibilities();
+    }
+}
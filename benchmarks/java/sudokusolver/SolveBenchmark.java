@@ -0,0 +1,49 @@
+package sudokusolver;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full solves with each engine, one puzzle of the corpus per operation, cycling through the corpus.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+
+    @Param({"easy", "hard", "17clue", "16x16", "25x25"})
+    public String corpus;
+
+    @Param({"RULES", "DANCING_LINKS"})
+    public Engine engine;
+
+    private int[][][] puzzles;
+    private int[][] board;
+    private int next;
+
+    @Setup
+    public void setup() {
+        puzzles = Corpus.load( corpus );
+        board = new int[puzzles[0].length][puzzles[0].length];
+    }
+
+    @Benchmark
+    public boolean solve() {
+        Corpus.copy( puzzles[next], board );
+        next = (next + 1) % puzzles.length;
+        return engine.solve( board );
+    }
+}
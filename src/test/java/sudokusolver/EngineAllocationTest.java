@@ -0,0 +1,91 @@
+package sudokusolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Once a thread has solved boards of some size, each engine keeps its solver (see Engine) and
+ * solving more boards of that size must allocate nothing. Measured with the allocated-bytes
+ * counter of the current thread.
+ */
+class EngineAllocationTest {
+    private static final String[] NINE = {
+        "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+        "1....7.9..3..2...8..96..5....53..9...1..8...26....4...3......1..4......7..7...3..",
+        "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......",
+        "52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+        "48.3............71.2.......7.5....6....2..8.............1.76...3.....4......5....",
+        "....14....3....2...7..........9...3.6.1.............8.2.....1.4....5.6.....7.8...",
+    };
+    private static final String[] SIXTEEN = {
+        ".3..6........2E1F6..1E.....974DG..E...4.A56..8B37...3B8...1CF5A6.A..E2C...B6374D6.8......7...C...D47.896...G1.5.G.2..4...........9.A...23.....GC..1.CGD46A95...7.C.D73B.1EF2.A..8..B.6.5.DC42.1.B.7.8...C.2....5..CG47.BF...A6.8.5..2C...68.B.7.A..65F1...4.....",
+        "A5...E..1C..B7.DF....3DB8..A.12..C12...A.D3B...6..73.2...6EFA.95.E6F.B3...A17C.243......6E.....919...FE8C...4..3..CG5.91D3B.8..E...DA.12B.6E..5..4.6..7.F...2...21AC....G7D.E..4..F5....A..2.G.....7.1.C..46.E..5....4B.9.1C.2..6.3.2....F85C9....9.E..52G7..34.",
+    };
+    private static final int WARM_UP_ROUNDS = 200;      // Enough for the JIT to settle
+    private static final int MEASURED_ROUNDS = 20;
+
+    @Test
+    void rulesEngineAllocatesNothing() {
+        assertNoAllocation( Engine.RULES, NINE );
+        assertNoAllocation( Engine.RULES, SIXTEEN );
+    }
+
+    @Test
+    void dancingLinksAllocatesNothing() {
+        assertNoAllocation( Engine.DANCING_LINKS, NINE );
+        assertNoAllocation( Engine.DANCING_LINKS, SIXTEEN );
+    }
+
+    // Warms engine up on lines, puzzles of one size, then checks that solving them again allocates nothing
+    private static void assertNoAllocation( Engine engine, String[] lines ) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue( bean instanceof com.sun.management.ThreadMXBean, "no allocated-bytes counter" );
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue( threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "allocated-bytes counter is off" );
+
+        int[][][] puzzles = new int[lines.length][][];
+        int[][][] boards = new int[lines.length][][];
+        for( int p = 0; p < lines.length; p++ ) {
+            puzzles[p] = PuzzleFormat.parse( lines[p] );
+            boards[p] = new int[puzzles[p].length][puzzles[p].length];
+        }
+        for( int r = 0; r < WARM_UP_ROUNDS; r++ )
+            solveAll( engine, puzzles, boards );
+
+        long id = Thread.currentThread().getId();
+        long overhead = threads.getThreadAllocatedBytes( id );      // What reading the counter costs
+        overhead = threads.getThreadAllocatedBytes( id ) - overhead;
+        long before = threads.getThreadAllocatedBytes( id );
+        int solved = 0;
+        for( int r = 0; r < MEASURED_ROUNDS; r++ )
+            solved += solveAll( engine, puzzles, boards );
+        long allocated = threads.getThreadAllocatedBytes( id ) - before - overhead;
+
+        assertEquals( MEASURED_ROUNDS * lines.length * 2, solved );
+        assertEquals( 0, allocated, engine + " allocated " + allocated + " bytes in "
+                + MEASURED_ROUNDS * lines.length * 2 + " solves of " + puzzles[0].length + "x" + puzzles[0].length + " boards" );
+    }
+
+    // Solves each puzzle, copied into its board, and counts its solutions up to 2. Returns the successes.
+    private static int solveAll( Engine engine, int[][][] puzzles, int[][][] boards ) {
+        int solved = 0;
+        for( int p = 0; p < puzzles.length; p++ ) {
+            copy( puzzles[p], boards[p] );
+            if( engine.solve( boards[p] ) )
+                solved++;
+            copy( puzzles[p], boards[p] );
+            if( engine.countSolutions( boards[p], 2 ) > 0 )
+                solved++;
+        }
+        return solved;
+    }
+
+    private static void copy( int[][] from, int[][] to ) {
+        for( int i = 0; i < from.length; i++ )
+            System.arraycopy( from[i], 0, to[i], 0, from[i].length );
+    }
+}
@@ -0,0 +1,61 @@
+package sudokusolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Generated puzzles must be valid, keep to their full grid and have exactly one solution.
+ */
+class PuzzleGeneratorTest {
+
+    @Test
+    void fullGridsAreSolutions() {
+        for( int n = 1; n <= 4; n++ ) {
+            PuzzleGenerator generator = new PuzzleGenerator( n, 11 );
+            for( long seed = 0; seed < (n == 2 ? 2000 : 50); seed++ )
+                SolveLimitsTest.assertSolved( generator.fullGrid( new SplittableRandom( seed ) ) );
+        }
+    }
+
+    @Test
+    void puzzlesHaveUniqueSolutions() throws InterruptedException {
+        for( int n = 2; n <= 3; n++ ) {
+            for( Difficulty target : Difficulty.values() ) {
+                int[][][] puzzles = new PuzzleGenerator( n, 5 ).generate( 20, target, 2 );
+                for( int[][] puzzle : puzzles ) {
+                    assertEquals( n * n, puzzle.length );
+                    for( int[] row : puzzle ) {
+                        for( int entry : row )
+                            assertTrue( entry == -1 || (entry >= 1 && entry <= n * n), "entry " + entry );
+                    }
+                    assertNotNull( Difficulty.rate( puzzle ), "invalid puzzle " + PuzzleFormat.format( puzzle ) );
+                    assertEquals( 1, new DancingLinks( copy( puzzle ) ).countSolutions( 2 ), PuzzleFormat.format( puzzle ) );
+
+                    int[][] solved = copy( puzzle );
+                    assertTrue( new Solver( solved ).solve() );
+                    SolveLimitsTest.assertSolved( solved );
+                    for( int i = 0; i < n * n; i++ )
+                        for( int j = 0; j < n * n; j++ )
+                            assertTrue( puzzle[i][j] == -1 || puzzle[i][j] == solved[i][j] );
+                }
+            }
+        }
+    }
+
+    @Test
+    void generationIsReproducible() throws InterruptedException {
+        int[][][] one = new PuzzleGenerator( 3, 42 ).generate( 6, Difficulty.MEDIUM, 1 );
+        int[][][] three = new PuzzleGenerator( 3, 42 ).generate( 6, Difficulty.MEDIUM, 3 );
+        for( int p = 0; p < one.length; p++ )
+            assertArrayEquals( one[p], three[p] );
+    }
+
+    private static int[][] copy( int[][] board ) {
+        int[][] copy = new int[board.length][];
+        for( int i = 0; i < board.length; i++ )
+            copy[i] = board[i].clone();
+        return copy;
+    }
+}
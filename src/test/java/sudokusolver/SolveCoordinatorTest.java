@@ -0,0 +1,226 @@
+package sudokusolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A SolveCoordinator on a free local port with workers in this process: RemoteWorkers for whole
+ * solves, and scripted workers speaking the protocol line by line, to check each reply, a worker
+ * disconnecting in the middle of a search, a board that does not solve the puzzle, and timeouts.
+ */
+class SolveCoordinatorTest {
+    private static final String HARD = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+    // The first six entries of the top row left with five numbers between them: split finds no
+    // contradiction, so the workers have to exhaust the parts
+    private static final String INVALID = "........5.5678....789.........56....56789....89.........567....6789.....9........";
+    private static final long TIMEOUT = 10;             // Seconds, for anything expected to finish
+
+    @Test
+    void twoWorkersSolveAndExhaust() throws Exception {
+        try( SolveCoordinator coordinator = new SolveCoordinator( 0, 8 ) ) {
+            coordinator.start();
+            startWorker( coordinator );
+            startWorker( coordinator );
+            coordinator.awaitWorkers( 2 );
+
+            for( String line : SolveLimitsTest.HARD ) {
+                int[][] board = PuzzleFormat.parse( line );
+                assertEquals( SolveOutcome.SOLVED, coordinator.solve( board, TIMEOUT, TimeUnit.SECONDS ), line );
+                assertSolution( line, board );
+            }
+            int[][] board = PuzzleFormat.parse( INVALID );
+            assertEquals( SolveOutcome.INVALID, coordinator.solve( board, TIMEOUT, TimeUnit.SECONDS ) );
+            assertEquals( INVALID, PuzzleFormat.format( board ), "board changed" );
+            assertEquals( 2, coordinator.getWorkers() );
+        }
+    }
+
+    @Test
+    void eachReplyDecidesTheOutcome() throws Exception {
+        try( SolveCoordinator coordinator = new SolveCoordinator( 0, 1 );
+                ScriptedWorker worker = new ScriptedWorker( coordinator ) ) {
+            coordinator.start();
+            coordinator.awaitWorkers( 1 );
+
+            FutureTask<SolveOutcome> solve = solveLater( coordinator, PuzzleFormat.parse( HARD ), TIMEOUT * 1000 );
+            worker.send( "SOLVED " + worker.solveId() + " " + solution() );
+            assertEquals( SolveOutcome.SOLVED, solve.get( TIMEOUT, TimeUnit.SECONDS ) );
+
+            solve = solveLater( coordinator, PuzzleFormat.parse( HARD ), TIMEOUT * 1000 );
+            worker.send( "EXHAUSTED " + worker.solveId() );
+            assertEquals( SolveOutcome.INVALID, solve.get( TIMEOUT, TimeUnit.SECONDS ) );
+
+            // A worker which cannot search a part stays connected, and the puzzle gives up rather than being called invalid
+            solve = solveLater( coordinator, PuzzleFormat.parse( HARD ), TIMEOUT * 1000 );
+            worker.send( "FAILED " + worker.solveId() );
+            assertEquals( SolveOutcome.GAVE_UP, solve.get( TIMEOUT, TimeUnit.SECONDS ) );
+            assertEquals( 1, coordinator.getWorkers() );
+        }
+    }
+
+    @Test
+    void wrongSolutionsAreRejected() throws Exception {
+        try( SolveCoordinator coordinator = new SolveCoordinator( 0, 1 );
+                ScriptedWorker worker = new ScriptedWorker( coordinator ) ) {
+            coordinator.start();
+            coordinator.awaitWorkers( 1 );
+
+            int[][] grid = new int[9][9];               // A valid full grid, but not keeping the givens
+            for( int i = 0; i < 9; i++ )
+                for( int j = 0; j < 9; j++ )
+                    grid[i][j] = 1 + ((i % 3) * 3 + i / 3 + j) % 9;
+            String[] bogus = { PuzzleFormat.format( grid ), solution().replace( '1', '2' ), "12345", "" };
+            for( String reply : bogus ) {
+                int[][] board = PuzzleFormat.parse( HARD );
+                FutureTask<SolveOutcome> solve = solveLater( coordinator, board, TIMEOUT * 1000 );
+                worker.send( "SOLVED " + worker.solveId() + " " + reply );
+                assertEquals( SolveOutcome.GAVE_UP, solve.get( TIMEOUT, TimeUnit.SECONDS ), reply );
+                assertEquals( HARD, PuzzleFormat.format( board ), "board changed" );
+            }
+            assertEquals( 1, coordinator.getWorkers() );
+        }
+    }
+
+    @Test
+    void timeoutCancelsTheSearch() throws Exception {
+        try( SolveCoordinator coordinator = new SolveCoordinator( 0, 1 );
+                ScriptedWorker worker = new ScriptedWorker( coordinator ) ) {
+            coordinator.start();
+            coordinator.awaitWorkers( 1 );
+
+            FutureTask<SolveOutcome> solve = solveLater( coordinator, PuzzleFormat.parse( HARD ), 200 );
+            long id = worker.solveId();
+            assertEquals( "CANCEL " + id, worker.receive() );
+            assertEquals( SolveOutcome.GAVE_UP, solve.get( TIMEOUT, TimeUnit.SECONDS ) );
+            worker.send( "CANCELLED " + id );
+
+            // Still connected and free for the next puzzle
+            solve = solveLater( coordinator, PuzzleFormat.parse( HARD ), TIMEOUT * 1000 );
+            worker.send( "SOLVED " + worker.solveId() + " " + solution() );
+            assertEquals( SolveOutcome.SOLVED, solve.get( TIMEOUT, TimeUnit.SECONDS ) );
+        }
+    }
+
+    @Test
+    void solutionCancelsTheOtherParts() throws Exception {
+        try( SolveCoordinator coordinator = new SolveCoordinator( 0, 2 );
+                ScriptedWorker first = new ScriptedWorker( coordinator );
+                ScriptedWorker second = new ScriptedWorker( coordinator ) ) {
+            coordinator.start();
+            coordinator.awaitWorkers( 2 );
+
+            FutureTask<SolveOutcome> solve = solveLater( coordinator, PuzzleFormat.parse( HARD ), TIMEOUT * 1000 );
+            long firstId = first.solveId();
+            long secondId = second.solveId();
+            first.send( "SOLVED " + firstId + " " + solution() );
+            assertEquals( SolveOutcome.SOLVED, solve.get( TIMEOUT, TimeUnit.SECONDS ) );
+            assertEquals( "CANCEL " + secondId, second.receive() );
+            second.send( "CANCELLED " + secondId );
+        }
+    }
+
+    @Test
+    void disconnectedWorkersPartIsRequeued() throws Exception {
+        try( SolveCoordinator coordinator = new SolveCoordinator( 0, 1 ) ) {
+            coordinator.start();
+            int[][] board = PuzzleFormat.parse( HARD );
+            FutureTask<SolveOutcome> solve;
+            try( ScriptedWorker worker = new ScriptedWorker( coordinator ) ) {
+                coordinator.awaitWorkers( 1 );
+                solve = solveLater( coordinator, board, TIMEOUT * 1000 );
+                worker.solveId();
+            }                                           // Gone in the middle of the search
+
+            startWorker( coordinator );
+            assertEquals( SolveOutcome.SOLVED, solve.get( TIMEOUT, TimeUnit.SECONDS ) );
+            assertSolution( HARD, board );
+            long waited = System.nanoTime();
+            while( coordinator.getWorkers() != 1 ) {
+                assertTrue( System.nanoTime() - waited < TimeUnit.SECONDS.toNanos( TIMEOUT ), "disconnected worker kept" );
+                Thread.sleep( 1 );
+            }
+        }
+    }
+
+    // Connects a RemoteWorker to coordinator, served on a thread of its own
+    private static void startWorker( SolveCoordinator coordinator ) throws IOException {
+        Thread thread = new Thread( new RemoteWorker( "localhost", coordinator.getPort() ), "test-worker" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    // Starts solving board with coordinator on a thread of its own
+    private static FutureTask<SolveOutcome> solveLater( SolveCoordinator coordinator, int[][] board, long timeoutMillis ) {
+        FutureTask<SolveOutcome> task = new FutureTask<>( () -> coordinator.solve( board, timeoutMillis, TimeUnit.MILLISECONDS ) );
+        Thread thread = new Thread( task, "test-solve" );
+        thread.setDaemon( true );
+        thread.start();
+        return task;
+    }
+
+    // The solution of HARD, as a line
+    private static String solution() {
+        int[][] board = PuzzleFormat.parse( HARD );
+        assertTrue( new Solver( board ).solve() );
+        return PuzzleFormat.format( board );
+    }
+
+    private static void assertSolution( String puzzle, int[][] board ) {
+        int[][] givens = PuzzleFormat.parse( puzzle );
+        SolveLimitsTest.assertSolved( board );
+        for( int i = 0; i < givens.length; i++ )
+            for( int j = 0; j < givens.length; j++ )
+                assertTrue( givens[i][j] == -1 || givens[i][j] == board[i][j], "entry (" + i + "," + j + ") changed" );
+    }
+
+    // A worker whose side of the protocol is played by the test
+    private static final class ScriptedWorker implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        ScriptedWorker( SolveCoordinator coordinator ) throws IOException {
+            socket = new Socket( "localhost", coordinator.getPort() );
+            socket.setSoTimeout( (int) TimeUnit.SECONDS.toMillis( TIMEOUT ) );
+            in = new BufferedReader( new InputStreamReader( socket.getInputStream(), StandardCharsets.UTF_8 ) );
+            out = new OutputStreamWriter( socket.getOutputStream(), StandardCharsets.UTF_8 );
+        }
+
+        // The next line from the coordinator
+        String receive() throws IOException {
+            String line = in.readLine();
+            assertNotNull( line, "coordinator closed the connection" );
+            return line;
+        }
+
+        // Reads a SOLVE line and returns the id of its part
+        long solveId() throws IOException {
+            String[] fields = receive().split( " ", 3 );
+            assertEquals( "SOLVE", fields[0] );
+            assertEquals( 3, fields.length );
+            PuzzleFormat.parse( fields[2] );
+            return Long.parseLong( fields[1] );
+        }
+
+        void send( String line ) throws IOException {
+            out.write( line );
+            out.write( '\n' );
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
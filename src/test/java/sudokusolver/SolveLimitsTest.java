@@ -0,0 +1,70 @@
+package sudokusolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Solves which give up (see SolveLimits) must leave the solver able to finish the job: in
+ * particular no nogood may be learned from a level the limits cut short.
+ */
+class SolveLimitsTest {
+    // Hard 9x9 puzzles, each with a unique solution and needing a search with singles alone
+    static final String[] HARD = {
+        "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..",
+        "52...6.........7.13...........4..8..6......5...........418.........3..2...87.....",
+        "48.3............71.2.......7.5....6....2..8.............1.76...3.....4......5....",
+    };
+
+    @Test
+    void resolveAfterGivingUpWithLearning() {
+        for( String puzzle : HARD ) {
+            int gaveUp = 0;
+            for( int budget = 1; budget <= 400; budget++ ) {
+                Solver solver = new Solver( PuzzleFormat.parse( puzzle ) );
+                solver.setRules();          // Singles only, so the search is deep enough to learn from
+                solver.setLearning( 1000 );
+                if( solver.solve( null, SolveLimits.NONE.withMaxNodes( budget ) ) != SolveOutcome.GAVE_UP )
+                    continue;
+                gaveUp++;
+                assertTrue( solver.solve(), puzzle + " retried after a budget of " + budget + " nodes" );
+                assertSolved( solver.getBoard() );
+            }
+            assertTrue( gaveUp > 0, puzzle + " never gave up" );
+        }
+    }
+
+    @Test
+    void resolveAfterCancelling() {
+        for( String puzzle : HARD ) {
+            Solver solver = new Solver( PuzzleFormat.parse( puzzle ) );
+            solver.setRules();
+            solver.setLearning( 1000 );
+            CancellationToken token = new CancellationToken();
+            token.cancel();
+            assertEquals( SolveOutcome.GAVE_UP, solver.solve( null, SolveLimits.NONE.withToken( token ) ) );
+            assertEquals( SolveOutcome.SOLVED, solver.solve( null, SolveLimits.NONE ) );
+            assertSolved( solver.getBoard() );
+        }
+    }
+
+    // Checks that every row, column and block of board holds each number once
+    static void assertSolved( int[][] board ) {
+        int n2 = board.length;
+        int n = (int) Math.sqrt( n2 );
+        for( int u = 0; u < n2; u++ ) {
+            boolean[] inRow = new boolean[n2 + 1];
+            boolean[] inCol = new boolean[n2 + 1];
+            boolean[] inBlock = new boolean[n2 + 1];
+            for( int t = 0; t < n2; t++ ) {
+                int r = board[u][t];
+                int c = board[t][u];
+                int b = board[(u / n) * n + t / n][(u % n) * n + t % n];
+                assertTrue( r >= 1 && r <= n2 && !inRow[r], "row " + u );
+                assertTrue( c >= 1 && c <= n2 && !inCol[c], "column " + u );
+                assertTrue( b >= 1 && b <= n2 && !inBlock[b], "block " + u );
+                inRow[r] = inCol[c] = inBlock[b] = true;
+            }
+        }
+    }
+}
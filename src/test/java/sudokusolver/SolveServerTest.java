@@ -0,0 +1,160 @@
+package sudokusolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Requests to a SolveServer on a free local port: answers in text and JSON, refusals of malformed
+ * and oversized requests, backpressure when the queue is full, and the counts under /metrics.
+ */
+class SolveServerTest {
+    private static final String HARD = "8..........36......7..9.2...5...7.......457.....1...3...1....68..85...1..9....4..";
+    private static final String INVALID = "11" + ".".repeat( 79 );
+    // 16x16, the first twelve entries of the top row left with eleven numbers between them. Singles
+    // and the default rules do not see it, so the search runs far beyond the timeouts used here.
+    private static final String HOPELESS = "...............C.......CDEFG.......CDEFG........DEFG......................CD.........."
+            + "CDEFG.......CDEFG.........EFG......................CDE.........CDEFG.......CDEFG..........FG......................CDEF"
+            + "........CDEFG.......CDEFG...........G...............";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void answersInTextAndJson() throws Exception {
+        try( SolveServer server = new SolveServer( 0, 2, 8, 4, 10, TimeUnit.SECONDS ) ) {
+            server.start();
+
+            HttpResponse<String> text = post( server, HARD + "\n" + INVALID + "\n", "text/plain" );
+            assertEquals( 200, text.statusCode() );
+            String[] lines = text.body().split( "\n" );
+            assertEquals( 2, lines.length );
+            assertSolution( HARD, lines[0] );
+            assertEquals( "invalid", lines[1] );
+
+            HttpResponse<String> json = post( server, "{\"puzzles\": [\"" + INVALID + "\", \"" + HARD + "\"]}", "application/json" );
+            assertEquals( 200, json.statusCode() );
+            assertEquals( "application/json", json.headers().firstValue( "Content-Type" ).orElse( null ) );
+            Matcher results = Pattern.compile( "\\{\"results\":\\[\\{\"status\":\"invalid\"\\},"
+                    + "\\{\"status\":\"solved\",\"solution\":\"([^\"]*)\"\\}\\]\\}" ).matcher( json.body().trim() );
+            assertTrue( results.matches(), json.body() );
+            assertSolution( HARD, results.group( 1 ) );
+
+            Map<String, String> metrics = metrics( server );
+            assertEquals( "2", metrics.get( "requests" ) );
+            assertEquals( "4", metrics.get( "puzzles" ) );
+            assertEquals( "2", metrics.get( "solved" ) );
+            assertEquals( "2", metrics.get( "invalid" ) );
+            assertEquals( "0", metrics.get( "timeouts" ) );
+            assertEquals( "0", metrics.get( "rejected" ) );
+            assertEquals( "0", metrics.get( "queued" ) );
+        }
+    }
+
+    @Test
+    void refusesBadRequests() throws Exception {
+        try( SolveServer server = new SolveServer( 0, 1, 8, 4, 10, TimeUnit.SECONDS ) ) {
+            server.start();
+
+            assertEquals( 400, post( server, HARD.substring( 1 ), "text/plain" ).statusCode() );
+            assertEquals( 400, post( server, "{\"puzzles\": [", "application/json" ).statusCode() );
+            assertEquals( 400, post( server, "{\"puzzles\": [81]}", "application/json" ).statusCode() );
+            String huge = String.join( ",", Collections.nCopies( 81 * 81, "." ) );     // 81x81, blocks of 9x9
+            assertEquals( 400, post( server, huge, "text/plain" ).statusCode() );
+
+            assertEquals( 413, post( server, (HARD + "\n").repeat( 9 ), "text/plain" ).statusCode() );
+            assertEquals( 413, post( server, ".".repeat( (1 << 20) + 100 ), "text/plain" ).statusCode() );
+
+            HttpResponse<String> get = client.send( HttpRequest.newBuilder( uri( server, "/solve" ) ).GET().build(),
+                    HttpResponse.BodyHandlers.ofString() );
+            assertEquals( 405, get.statusCode() );
+
+            Map<String, String> metrics = metrics( server );
+            assertEquals( "7", metrics.get( "requests" ) );
+            assertEquals( "2", metrics.get( "rejected" ) );
+            assertEquals( "0", metrics.get( "puzzles" ) );
+        }
+    }
+
+    @Test
+    void refusesWhenQueueIsFull() throws Exception {
+        try( SolveServer server = new SolveServer( 0, 1, 2, 1, 1, TimeUnit.SECONDS ) ) {
+            server.start();
+
+            // The only worker takes the first puzzle and is stuck on it until the timeout, the second waits in the queue
+            CompletableFuture<HttpResponse<String>> stuck = client.sendAsync( request( server, HOPELESS + "\n" + HOPELESS + "\n" ),
+                    HttpResponse.BodyHandlers.ofString() );
+            long waited = System.nanoTime();
+            while( server.getBatches() == 0 || server.getQueued() != 1 ) {
+                assertTrue( System.nanoTime() - waited < TimeUnit.SECONDS.toNanos( 10 ), "puzzles never queued" );
+                Thread.sleep( 1 );
+            }
+
+            HttpResponse<String> busy = post( server, HARD + "\n" + HARD + "\n", "text/plain" );
+            assertEquals( 503, busy.statusCode() );
+            assertEquals( "1", busy.headers().firstValue( "Retry-After" ).orElse( null ) );
+            assertEquals( 1, server.getQueued(), "the refused request took its puzzle back" );
+
+            HttpResponse<String> late = stuck.get( 10, TimeUnit.SECONDS );
+            assertEquals( 200, late.statusCode() );
+            assertEquals( "timeout\ntimeout\n", late.body() );
+
+            Map<String, String> metrics = metrics( server );
+            assertEquals( "2", metrics.get( "requests" ) );
+            assertEquals( "1", metrics.get( "rejected" ) );
+            assertEquals( "2", metrics.get( "puzzles" ) );
+            assertEquals( "2", metrics.get( "timeouts" ) );
+            assertEquals( "0", metrics.get( "solved" ) );
+        }
+    }
+
+    // Checks that solution is a solution of puzzle, both written as single lines
+    private static void assertSolution( String puzzle, String solution ) {
+        int[][] givens = PuzzleFormat.parse( puzzle );
+        int[][] board = PuzzleFormat.parse( solution );
+        SolveLimitsTest.assertSolved( board );
+        for( int i = 0; i < givens.length; i++ )
+            for( int j = 0; j < givens.length; j++ )
+                assertTrue( givens[i][j] == -1 || givens[i][j] == board[i][j], "entry (" + i + "," + j + ") changed" );
+    }
+
+    private HttpResponse<String> post( SolveServer server, String body, String type ) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder( uri( server, "/solve" ) )
+                .header( "Content-Type", type )
+                .POST( HttpRequest.BodyPublishers.ofString( body ) )
+                .build();
+        return client.send( request, HttpResponse.BodyHandlers.ofString() );
+    }
+
+    private static HttpRequest request( SolveServer server, String body ) {
+        return HttpRequest.newBuilder( uri( server, "/solve" ) ).POST( HttpRequest.BodyPublishers.ofString( body ) ).build();
+    }
+
+    // The "name value" lines of /metrics
+    private Map<String, String> metrics( SolveServer server ) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send( HttpRequest.newBuilder( uri( server, "/metrics" ) ).GET().build(),
+                HttpResponse.BodyHandlers.ofString() );
+        assertEquals( 200, response.statusCode() );
+        Map<String, String> metrics = new HashMap<>();
+        for( String line : response.body().split( "\n" ) ) {
+            int space = line.indexOf( ' ' );
+            metrics.put( line.substring( 0, space ), line.substring( space + 1 ) );
+        }
+        return metrics;
+    }
+
+    private static URI uri( SolveServer server, String path ) {
+        return URI.create( "http://localhost:" + server.getPort() + path );
+    }
+}
@@ -0,0 +1,190 @@
+package sudokusolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Solver.init() finds the candidates of the blank entries a word at a time. These tests check it
+ * against the way a solve used to begin: every blank entry holding every number, each given
+ * removing its number from its peers one at a time, and each entry that forces doing the same.
+ */
+class SolverInitTest {
+    private static final String[] EASY = {
+        "..7.......9.6..3..62...7.95732.18....6....5.851......2..1276...2...5394....941.76",
+        ".43....68.5.423....915.64.2..2397.85.1......9.....8......7.......4.39.51.758.4..3",
+        ".....5.67.9.76.3128..2.3...1..8.4.7...7....98...3..1.59..13...4245..9.3.7..4.2...",
+    };
+
+    @Test
+    void candidatesMatchOneByOneElimination() {
+        Random random = new Random( 23 );
+        for( int n = 2; n <= 6; n++ ) {
+            for( int t = 0; t < 40; t++ ) {
+                int[][] puzzle = puzzle( n, 0.1 + 0.6 * random.nextDouble(), t % 4 == 3, random );
+                boolean[][][] expected = reference( puzzle );
+                Solver solver = new Solver( copy( puzzle ) );
+                boolean valid = solver.updateKnowns();          // Propagate the singles init() placed
+                assertEquals( expected != null, valid, PuzzleFormat.format( puzzle ) );
+                if( expected == null )
+                    continue;
+                int n2 = n * n;
+                for( int i = 0; i < n2; i++ ) {
+                    for( int j = 0; j < n2; j++ ) {
+                        for( int k = 1; k <= n2; k++ ) {
+                            if( expected[i][j][k] != solver.isCandidate( i, j, k ) )
+                                fail( "entry (" + i + "," + j + "), number " + k + " of " + PuzzleFormat.format( puzzle ) );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void givensCountAsEliminationsByKnowns() {
+        for( String line : EASY ) {
+            int[][] puzzle = PuzzleFormat.parse( line );
+            Solver solver = new Solver( puzzle );
+            solver.setRules();
+            SolveStats stats = new SolveStats();
+            assertTrue( solver.solve( stats ) );
+            assertEquals( 0, stats.getSearchNodes(), "needs only singles" );
+            int blanks = 0;
+            for( char c : line.toCharArray() )
+                if( c == '.' )
+                    blanks++;
+            // Each blank entry loses every number but its own, all to the knowns
+            assertEquals( blanks * 8L, stats.getKnownsEliminations() );
+        }
+    }
+
+    /**
+     * A random puzzle with n*n rows keeping each entry of a shuffled solution with probability
+     * keep. If corrupt, one given is changed to another number, which may make it invalid.
+     */
+    private static int[][] puzzle( int n, double keep, boolean corrupt, Random random ) {
+        int n2 = n * n;
+        int[] numbers = new int[n2];
+        for( int k = 0; k < n2; k++ )
+            numbers[k] = k + 1;
+        for( int k = n2 - 1; k > 0; k-- ) {
+            int r = random.nextInt( k + 1 );
+            int swap = numbers[k];
+            numbers[k] = numbers[r];
+            numbers[r] = swap;
+        }
+        int[][] puzzle = new int[n2][n2];
+        for( int i = 0; i < n2; i++ )
+            for( int j = 0; j < n2; j++ )
+                puzzle[i][j] = random.nextDouble() < keep ? numbers[((i % n) * n + i / n + j) % n2] : -1;
+        if( corrupt ) {
+            int i = random.nextInt( n2 );
+            int j = random.nextInt( n2 );
+            puzzle[i][j] = 1 + (Math.max( puzzle[i][j], 1 ) + random.nextInt( n2 - 1 )) % n2;
+        }
+        return puzzle;
+    }
+
+    /**
+     * The candidates left once the givens, and the naked and hidden singles they lead to, have
+     * been removed from their peers one at a time. Entry [i][j][k] is true if k is a candidate of
+     * (i,j). Returns null if some entry or some number of a unit runs out of places.
+     */
+    private static boolean[][][] reference( int[][] puzzle ) {
+        int n2 = puzzle.length;
+        int n = (int) Math.sqrt( n2 );
+        boolean[][][] cand = new boolean[n2][n2][n2 + 1];
+        int[][] placed = new int[n2][n2];
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        for( int i = 0; i < n2; i++ ) {
+            for( int j = 0; j < n2; j++ ) {
+                for( int k = 1; k <= n2; k++ )
+                    cand[i][j][k] = true;
+                if( puzzle[i][j] != -1 )
+                    queue.add( new int[] { i, j, puzzle[i][j] } );
+            }
+        }
+        while( true ) {
+            while( !queue.isEmpty() ) {
+                int[] p = queue.poll();
+                int i = p[0], j = p[1], k = p[2];
+                if( placed[i][j] == k )
+                    continue;
+                if( placed[i][j] != 0 || !cand[i][j][k] )
+                    return null;
+                placed[i][j] = k;
+                for( int m = 1; m <= n2; m++ )
+                    cand[i][j][m] = m == k;
+                for( int t = 0; t < n2; t++ ) {
+                    if( t != j )
+                        cand[i][t][k] = false;
+                    if( t != i )
+                        cand[t][j][k] = false;
+                    int bi = (i / n) * n + t / n;
+                    int bj = (j / n) * n + t % n;
+                    if( bi != i || bj != j )
+                        cand[bi][bj][k] = false;
+                }
+            }
+            for( int i = 0; i < n2; i++ ) {         // Naked singles
+                for( int j = 0; j < n2; j++ ) {
+                    int count = 0, last = 0;
+                    for( int k = 1; k <= n2; k++ ) {
+                        if( cand[i][j][k] ) {
+                            count++;
+                            last = k;
+                        }
+                    }
+                    if( count == 0 )
+                        return null;
+                    if( count == 1 && placed[i][j] == 0 )
+                        queue.add( new int[] { i, j, last } );
+                }
+            }
+            for( int u = 0; u < n2; u++ ) {         // Hidden singles of row, column and block u
+                for( int k = 1; k <= n2; k++ ) {
+                    int[] rows = new int[3];            // Row and column of the last place found in each kind of unit
+                    int[] cols = new int[3];
+                    int[] counts = new int[3];
+                    for( int t = 0; t < n2; t++ ) {
+                        int bi = (u / n) * n + t / n;
+                        int bj = (u % n) * n + t % n;
+                        if( cand[u][t][k] ) {
+                            counts[0]++;
+                            rows[0] = u;
+                            cols[0] = t;
+                        }
+                        if( cand[t][u][k] ) {
+                            counts[1]++;
+                            rows[1] = t;
+                            cols[1] = u;
+                        }
+                        if( cand[bi][bj][k] ) {
+                            counts[2]++;
+                            rows[2] = bi;
+                            cols[2] = bj;
+                        }
+                    }
+                    for( int kind = 0; kind < 3; kind++ ) {
+                        if( counts[kind] == 0 )
+                            return null;
+                        if( counts[kind] == 1 && placed[rows[kind]][cols[kind]] == 0 )
+                            queue.add( new int[] { rows[kind], cols[kind], k } );
+                    }
+                }
+            }
+            if( queue.isEmpty() )
+                return cand;
+        }
+    }
+
+    private static int[][] copy( int[][] board ) {
+        int[][] copy = new int[board.length][];
+        for( int i = 0; i < board.length; i++ )
+            copy[i] = board[i].clone();
+        return copy;
+    }
+}